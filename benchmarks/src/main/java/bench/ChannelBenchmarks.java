@@ -0,0 +1,125 @@
+package bench;
+
+import bench.LoanFixtures.CanalVacio;
+import bench.LoanFixtures.Cursor;
+import notification.ConsoleNotification;
+import notification.FanOutNotificationChannel;
+import notification.FileNotificationChannel;
+import notification.LoanEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Canales de notificación. Consola contra fichero, escribiendo los dos a disco: la consola
+ * se mide como System.out redirigido a un fichero (PrintStream con autoflush por línea).
+ * Los ficheros y los hilos de cada canal se cierran y se borran al acabar.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ChannelBenchmarks {
+
+    private static final String POLITICA = "Política Estándar";
+
+    /**
+     * Coste para quien notifica: encolar en cada destino (los destinos van en sus hilos).
+     */
+    @State(Scope.Benchmark)
+    public static class Difusion {
+
+        FanOutNotificationChannel canal;
+
+        @Setup(Level.Trial)
+        public void abrir() {
+            canal = new FanOutNotificationChannel(
+                    Arrays.asList(new CanalVacio(), new CanalVacio(), new CanalVacio()));
+        }
+
+        @TearDown(Level.Trial)
+        public void cerrar() {
+            canal.close();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Consola {
+
+        final ConsoleNotification canal = new ConsoleNotification();
+        Path fichero;
+        PrintStream original;
+        PrintStream consola;
+
+        @Setup(Level.Trial)
+        public void abrir() throws IOException {
+            fichero = Files.createTempFile("consola", ".log");
+            consola = new PrintStream(new BufferedOutputStream(new FileOutputStream(fichero.toFile()), 8192),
+                                      true, "UTF-8");
+            original = System.out;
+            System.setOut(consola);
+        }
+
+        @TearDown(Level.Trial)
+        public void cerrar() throws IOException {
+            System.setOut(original);
+            consola.close();
+            LoanFixtures.borrar(fichero);
+        }
+    }
+
+    /**
+     * Rota cada 16 MB y guarda solo los 2 últimos ficheros, para no llenar el disco.
+     */
+    @State(Scope.Benchmark)
+    public static class Fichero {
+
+        Path directorio;
+        FileNotificationChannel canal;
+
+        @Setup(Level.Trial)
+        public void abrir() throws IOException {
+            directorio = LoanFixtures.crearDirectorio("avisos");
+            canal = new FileNotificationChannel(directorio, "bench", 16L * 1024 * 1024, 0, 100, 2);
+        }
+
+        @TearDown(Level.Trial)
+        public void cerrar() throws IOException {
+            canal.close();
+            LoanFixtures.borrar(directorio);
+        }
+    }
+
+    @Benchmark
+    public void fanOutNotify(Difusion d, Cursor cursor) {
+        d.canal.notify(LoanEvent.processed(cursor.siguiente(), 1000, POLITICA));
+    }
+
+    @Benchmark
+    public void consoleNotify(Consola c, Cursor cursor) {
+        c.canal.notify(LoanEvent.processed(cursor.siguiente(), 1000, POLITICA));
+    }
+
+    @Benchmark
+    public void fileNotify(Fichero f, Cursor cursor) {
+        f.canal.notify(LoanEvent.processed(cursor.siguiente(), 1000, POLITICA));
+    }
+}
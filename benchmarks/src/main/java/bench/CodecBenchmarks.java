@@ -0,0 +1,115 @@
+package bench;
+
+import bench.LoanFixtures.Cursor;
+import codec.BookDictionary;
+import codec.LoanCodec;
+import library.Loan;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Formato binario contra el texto de Loan.toString().
+ * Cada hilo tiene sus codecs y sus buffers; el catálogo de libros se comparte porque
+ * después de llenarlo solo se lee. Los casos de lectura decodifican un lote ya
+ * codificado, dando la vuelta al llegar al final.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class CodecBenchmarks {
+
+    private static final List<Loan> LOTE = Arrays.asList(LoanFixtures.PRESTAMOS);
+    private static final BookDictionary CATALOGO = crearCatalogo();
+
+    @State(Scope.Thread)
+    public static class Codecs {
+
+        final LoanCodec sinDiccionario = new LoanCodec();
+        final LoanCodec conDiccionario = new LoanCodec(CATALOGO);
+        final ByteBuffer escritura = ByteBuffer.allocate(256);
+        final ByteBuffer loteSinDiccionario = ByteBuffer.allocate(64 * 1024);
+        final ByteBuffer loteConDiccionario = ByteBuffer.allocate(64 * 1024);
+        final ByteBuffer idaYVuelta = ByteBuffer.allocateDirect(64 * 1024);
+        final Loan[] leidos = new Loan[LoanFixtures.NUM_PRESTAMOS];
+
+        @Setup
+        public void codificarLotes() {
+            sinDiccionario.encodeAll(LOTE, 0, loteSinDiccionario);
+            loteSinDiccionario.flip();
+            conDiccionario.encodeAll(LOTE, 0, loteConDiccionario);
+            loteConDiccionario.flip();
+        }
+    }
+
+    private static BookDictionary crearCatalogo() {
+        BookDictionary catalogo = new BookDictionary();
+        for (Loan loan : LoanFixtures.PRESTAMOS) {
+            catalogo.add(loan.getBook());
+        }
+        return catalogo;
+    }
+
+    @Benchmark
+    public String loanToString(Cursor cursor) {
+        return cursor.siguiente().toString();
+    }
+
+    @Benchmark
+    public int encode(Codecs c, Cursor cursor) {
+        c.escritura.clear();
+        c.sinDiccionario.encode(cursor.siguiente(), c.escritura);
+        return c.escritura.position();
+    }
+
+    @Benchmark
+    public int encodeConDiccionario(Codecs c, Cursor cursor) {
+        c.escritura.clear();
+        c.conDiccionario.encode(cursor.siguiente(), c.escritura);
+        return c.escritura.position();
+    }
+
+    @Benchmark
+    public Loan decode(Codecs c) {
+        return leer(c.sinDiccionario, c.loteSinDiccionario);
+    }
+
+    @Benchmark
+    public Loan decodeConDiccionario(Codecs c) {
+        return leer(c.conDiccionario, c.loteConDiccionario);
+    }
+
+    // Un lote entero por operación: codificar los 1024 y volver a leerlos
+    @Benchmark
+    public void idaYVueltaLote(Codecs c, Blackhole bh) {
+        c.idaYVuelta.clear();
+        int escritos = c.conDiccionario.encodeAll(LOTE, 0, c.idaYVuelta);
+        c.idaYVuelta.flip();
+        int leidos = c.conDiccionario.decodeAll(c.idaYVuelta, c.leidos, 0);
+        if (leidos != escritos) {
+            throw new IllegalStateException("La ida y vuelta no devuelve los mismos préstamos");
+        }
+        bh.consume(c.leidos);
+    }
+
+    private static Loan leer(LoanCodec codec, ByteBuffer lote) {
+        if (!lote.hasRemaining()) {
+            lote.rewind();
+        }
+        return codec.decode(lote);
+    }
+}
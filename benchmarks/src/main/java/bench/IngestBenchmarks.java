@@ -0,0 +1,75 @@
+package bench;
+
+import ingest.LoanCsvReader;
+import library.BookCache;
+import library.Loan;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lectura de un CSV de 32 MB: una operación es leer el fichero entero, así que
+ * MB/s = 32 / (s/op). Cada préstamo leído va al Blackhole para que no se elimine.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+@State(Scope.Benchmark)
+public class IngestBenchmarks {
+
+    private static final int MB_CSV = 32;
+
+    private Path fichero;
+    private final LoanCsvReader lector = new LoanCsvReader();
+    private final LoanCsvReader lectorConCache = new LoanCsvReader(false, new BookCache(10_000));
+
+    @Setup(Level.Trial)
+    public void crearCsv() throws IOException {
+        fichero = Files.createTempFile("prestamos", ".csv");
+        long objetivo = (long) MB_CSV * 1024 * 1024;
+        long escritos = 0;
+        try (Writer out = Files.newBufferedWriter(fichero, StandardCharsets.UTF_8)) {
+            for (int i = 0; escritos < objetivo; i++) {
+                Loan loan = LoanFixtures.PRESTAMOS[i & LoanFixtures.MASCARA];
+                String linea = loan.getBook().getTitle() + "," + loan.getBook().getAuthor() + ","
+                        + loan.getBook().getIsbn() + "," + loan.getBorrowerName() + ","
+                        + loan.getDaysLoaned() + "\n";
+                out.write(linea);
+                escritos += linea.length();
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void borrarCsv() throws IOException {
+        LoanFixtures.borrar(fichero);
+    }
+
+    @Benchmark
+    public long read(Blackhole bh) throws IOException {
+        return lector.read(fichero, bh::consume, (linea, motivo) -> bh.consume(motivo));
+    }
+
+    @Benchmark
+    public long readConBookCache(Blackhole bh) throws IOException {
+        return lectorConCache.read(fichero, bh::consume, (linea, motivo) -> bh.consume(motivo));
+    }
+}
@@ -0,0 +1,97 @@
+package bench;
+
+import library.Book;
+import library.Loan;
+import notification.LoanEvent;
+import notification.NotificationChannel;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+/**
+ * Datos comunes de los benchmarks: 1024 préstamos fijos (100 libros, 250 prestatarios)
+ * y un canal que no hace nada, para medir solo lo que hay delante.
+ */
+public final class LoanFixtures {
+
+    public static final int NUM_PRESTAMOS = 1024;
+    public static final int MASCARA = NUM_PRESTAMOS - 1;
+
+    public static final Loan[] PRESTAMOS = crearPrestamos();
+
+    private LoanFixtures() {
+    }
+
+    /**
+     * Cada hilo recorre los préstamos por su cuenta, sin compartir el índice.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        private int i;
+
+        public Loan siguiente() {
+            return PRESTAMOS[i++ & MASCARA];
+        }
+    }
+
+    private static Loan[] crearPrestamos() {
+        Loan[] prestamos = new Loan[NUM_PRESTAMOS];
+        for (int i = 0; i < NUM_PRESTAMOS; i++) {
+            Book libro = new Book("Libro " + (i % 100), "Autor " + (i % 37), "978-" + (i % 100));
+            prestamos[i] = new Loan(libro, "Prestatario " + (i % 250), 1 + (i * 7) % 60);
+        }
+        return prestamos;
+    }
+
+    static Path crearDirectorio(String prefijo) {
+        try {
+            return Files.createTempDirectory(prefijo);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Borra un fichero o un directorio con todo lo que tenga dentro
+    static void borrar(Path ruta) throws IOException {
+        if (ruta == null) {
+            return;
+        }
+        if (Files.isDirectory(ruta)) {
+            try (Stream<Path> hijos = Files.list(ruta)) {
+                for (Path hijo : (Iterable<Path>) hijos::iterator) {
+                    borrar(hijo);
+                }
+            }
+        }
+        Files.deleteIfExists(ruta);
+    }
+
+    /**
+     * Canal que no hace nada con el mensaje, para medir solo el servicio.
+     * Sí formatea los String que recibe, igual que haría un canal real.
+     */
+    static class CanalVacio implements NotificationChannel {
+
+        private volatile int longitud;
+
+        @Override
+        public void notify(String message) {
+            longitud = message.length();
+        }
+
+        @Override
+        public void notify(LoanEvent event) {
+            longitud = event.getLoan().getDaysLoaned();
+        }
+
+        @Override
+        public String getChannelName() {
+            return "Vacío";
+        }
+    }
+}
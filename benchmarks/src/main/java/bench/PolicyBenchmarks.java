@@ -0,0 +1,64 @@
+package bench;
+
+import bench.LoanFixtures.Cursor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import policy.CachingLoanPolicy;
+import policy.LoanPolicy;
+import policy.PremiumLoanPolicy;
+import policy.RoutingLoanPolicy;
+import policy.StandardLoanPolicy;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * calculateCost de las políticas, solas y con los decoradores de caché y enrutado.
+ * Las políticas son inmutables o thread-safe, así que todos los hilos comparten las mismas.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class PolicyBenchmarks {
+
+    private final LoanPolicy standard = new StandardLoanPolicy();
+    private final LoanPolicy premium = new PremiumLoanPolicy();
+    private final LoanPolicy premiumCache = new CachingLoanPolicy(premium, 90);
+    private final LoanPolicy premiumCacheSinEstadisticas = new CachingLoanPolicy(premium, 90, false);
+    // Un socio de cada cuatro es premium; con la caché caliente el resolvedor no se llama
+    private final LoanPolicy porPrestatario = new RoutingLoanPolicy(RoutingLoanPolicy.RoutingKey.BORROWER,
+            nombre -> nombre.hashCode() % 4 == 0 ? premium : standard, standard, 1024);
+
+    @Benchmark
+    public double standardCalculateCost(Cursor cursor) {
+        return standard.calculateCost(cursor.siguiente());
+    }
+
+    @Benchmark
+    public double premiumCalculateCost(Cursor cursor) {
+        return premium.calculateCost(cursor.siguiente());
+    }
+
+    @Benchmark
+    public double cachingPremiumCalculateCost(Cursor cursor) {
+        return premiumCache.calculateCost(cursor.siguiente());
+    }
+
+    @Benchmark
+    public double cachingPremiumSinEstadisticasCalculateCost(Cursor cursor) {
+        return premiumCacheSinEstadisticas.calculateCost(cursor.siguiente());
+    }
+
+    @Benchmark
+    public double routingPorPrestatarioCalculateCost(Cursor cursor) {
+        return porPrestatario.calculateCost(cursor.siguiente());
+    }
+}
@@ -0,0 +1,188 @@
+package bench;
+
+import bench.LoanFixtures.Cursor;
+import library.Loan;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import registry.AggregatingLoanRegistry;
+import registry.ColumnarLoanRegistry;
+import registry.ConcurrentLoanRegistry;
+import registry.IndexedLoanRegistry;
+import registry.JournalLoanRegistry;
+import registry.RetainingLoanRegistry;
+import registry.StreamingStatsRegistry;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Implementaciones de LoanRegistry.
+ *
+ * Los registros compartidos se crean de nuevo en cada iteración, así lo que se acumula
+ * está acotado por lo que dura una iteración y no crece de una a otra. Los de un hilo
+ * (Columnar, Indexed) son de cada hilo y empiezan de cero cada 2^20 préstamos, con un
+ * contador propio del hilo. Los que escriben a disco borran su directorio al acabar.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class RegistryBenchmarks {
+
+    private static final int RENOVAR = 0xFFFFF;
+
+    @State(Scope.Benchmark)
+    public static class Compartidos {
+
+        ConcurrentLoanRegistry concurrente;
+        StreamingStatsRegistry estadisticas;
+
+        @Setup(Level.Iteration)
+        public void vaciar() {
+            concurrente = new ConcurrentLoanRegistry();
+            estadisticas = new StreamingStatsRegistry();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class DeUnHilo {
+
+        ColumnarLoanRegistry columnar;
+        IndexedLoanRegistry indexado;
+        private int registrados;
+
+        @Setup(Level.Iteration)
+        public void vaciar() {
+            columnar = new ColumnarLoanRegistry();
+            indexado = new IndexedLoanRegistry();
+            registrados = 0;
+        }
+
+        void contar() {
+            if ((++registrados & RENOVAR) == 0) {
+                columnar = new ColumnarLoanRegistry();
+                indexado = new IndexedLoanRegistry();
+            }
+        }
+    }
+
+    /**
+     * Totales por ISBN y prestatario: solo hay 100 ISBN y 250 prestatarios, no crece.
+     */
+    @State(Scope.Benchmark)
+    public static class Agregados {
+
+        final AggregatingLoanRegistry registrando = new AggregatingLoanRegistry();
+        final AggregatingLoanRegistry lleno = new AggregatingLoanRegistry();
+        final List<Loan> prestamos = Arrays.asList(LoanFixtures.PRESTAMOS);
+
+        @Setup(Level.Trial)
+        public void llenar() {
+            for (Loan loan : LoanFixtures.PRESTAMOS) {
+                lleno.registerLoanWithCostMillis(loan, 1000);
+            }
+        }
+    }
+
+    /**
+     * Diario con el fsync por defecto (cada 1024 o cada 10 ms) y retención de los
+     * últimos 1024 préstamos en memoria, volcando el resto a GZIP.
+     */
+    @State(Scope.Benchmark)
+    public static class EnDisco {
+
+        Path dirDiario;
+        Path dirRetenidos;
+        JournalLoanRegistry diario;
+        RetainingLoanRegistry retenidos;
+
+        @Setup(Level.Iteration)
+        public void abrir() throws IOException {
+            dirDiario = LoanFixtures.crearDirectorio("diario");
+            dirRetenidos = LoanFixtures.crearDirectorio("retenidos");
+            diario = new JournalLoanRegistry(dirDiario);
+            retenidos = new RetainingLoanRegistry(dirRetenidos, LoanFixtures.NUM_PRESTAMOS);
+        }
+
+        @TearDown(Level.Iteration)
+        public void cerrar() throws IOException {
+            try {
+                diario.close();
+                retenidos.close();
+            } finally {
+                LoanFixtures.borrar(dirDiario);
+                LoanFixtures.borrar(dirRetenidos);
+            }
+        }
+    }
+
+    @Benchmark
+    public void concurrentRegisterLoanWithCost(Compartidos c, Cursor cursor) {
+        c.concurrente.registerLoanWithCost(cursor.siguiente(), 1.0);
+    }
+
+    @Benchmark
+    public void streamingStatsRegisterPricedLoan(Compartidos c, Cursor cursor) {
+        c.estadisticas.registerPricedLoan(cursor.siguiente(), 1000, "Política Estándar");
+    }
+
+    // Cuánto cuesta mantener los índices frente a solo guardar por columnas
+    @Benchmark
+    public void columnarRegisterLoanWithCostMillis(DeUnHilo h, Cursor cursor) {
+        h.contar();
+        h.columnar.registerLoanWithCostMillis(cursor.siguiente(), 1000);
+    }
+
+    @Benchmark
+    public void indexedRegisterLoanWithCostMillis(DeUnHilo h, Cursor cursor) {
+        h.contar();
+        h.indexado.registerLoanWithCostMillis(cursor.siguiente(), 1000);
+    }
+
+    @Benchmark
+    public void aggregatingRegisterLoanWithCostMillis(Agregados a, Cursor cursor) {
+        a.registrando.registerLoanWithCostMillis(cursor.siguiente(), 1000);
+    }
+
+    // Consultar el total ya agregado frente a recorrer los 1024 préstamos
+    @Benchmark
+    public long aggregatingGetRevenueByIsbnMillis(Agregados a, Cursor cursor) {
+        return a.lleno.getRevenueByIsbnMillis(cursor.siguiente().getBook().getIsbn());
+    }
+
+    @Benchmark
+    public long ingresosDeIsbnRecorriendoPrestamos(Agregados a, Cursor cursor) {
+        String isbn = cursor.siguiente().getBook().getIsbn();
+        long ingresos = 0;
+        for (Loan loan : a.prestamos) {
+            if (loan.getBook().getIsbn().equals(isbn)) {
+                ingresos += 1000;
+            }
+        }
+        return ingresos;
+    }
+
+    @Benchmark
+    public void journalRegisterLoanWithCostMillis(EnDisco d, Cursor cursor) {
+        d.diario.registerLoanWithCostMillis(cursor.siguiente(), 1000);
+    }
+
+    // En régimen estable cada registro vuelca uno a GZIP
+    @Benchmark
+    public void retainingRegisterLoanWithCostMillis(EnDisco d, Cursor cursor) {
+        d.retenidos.registerLoanWithCostMillis(cursor.siguiente(), 1000);
+    }
+}
@@ -0,0 +1,61 @@
+package bench;
+
+import library.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import policy.PremiumLoanPolicy;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Acumular ingresos: double (lo de antes) contra Money en long y contra BigDecimal.
+ * Cada hilo acumula en su propio total.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class RevenueBenchmarks {
+
+    private final double[] costesDouble = new double[LoanFixtures.NUM_PRESTAMOS];
+    private final long[] costesMillis = new long[LoanFixtures.NUM_PRESTAMOS];
+    private final BigDecimal[] costesDecimal = new BigDecimal[LoanFixtures.NUM_PRESTAMOS];
+
+    private int i;
+    private double totalDouble;
+    private long totalMillis;
+    private BigDecimal totalDecimal = BigDecimal.ZERO;
+
+    public RevenueBenchmarks() {
+        PremiumLoanPolicy premium = new PremiumLoanPolicy();
+        for (int j = 0; j < LoanFixtures.NUM_PRESTAMOS; j++) {
+            costesDouble[j] = LoanFixtures.PRESTAMOS[j].getDaysLoaned() * 0.75 * 0.9;
+            costesMillis[j] = premium.calculateCostMillis(LoanFixtures.PRESTAMOS[j]);
+            costesDecimal[j] = BigDecimal.valueOf(costesMillis[j], 3);
+        }
+    }
+
+    @Benchmark
+    public double sumaDouble() {
+        return totalDouble += costesDouble[i++ & LoanFixtures.MASCARA];
+    }
+
+    @Benchmark
+    public long sumaMoney() {
+        return totalMillis = Money.add(totalMillis, costesMillis[i++ & LoanFixtures.MASCARA]);
+    }
+
+    @Benchmark
+    public BigDecimal sumaBigDecimal() {
+        return totalDecimal = totalDecimal.add(costesDecimal[i++ & LoanFixtures.MASCARA]);
+    }
+}
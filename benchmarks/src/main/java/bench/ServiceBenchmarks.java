@@ -0,0 +1,158 @@
+package bench;
+
+import audit.AsyncLoanAuditSink;
+import bench.LoanFixtures.CanalVacio;
+import bench.LoanFixtures.Cursor;
+import isp.CoalescingLoanNotifier;
+import isp.FullLoanService;
+import isp.StatisticsService;
+import library.Loan;
+import metrics.InMemoryLoanMetrics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import policy.LoanPolicy;
+import policy.PremiumLoanPolicy;
+import policy.StandardLoanPolicy;
+import registry.ConcurrentLoanRegistry;
+import service.BulkLoanProcessor;
+import service.LoanService;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Servicios: procesar, notificar y registrar préstamos.
+ *
+ * Los servicios que acumulan préstamos (FullLoanService, StatisticsService) se crean
+ * de nuevo en cada iteración, así la memoria no crece de una iteración a otra.
+ * Lo que arranca hilos (auditoría, notificador por grupos, lotes) se cierra al acabar.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class ServiceBenchmarks {
+
+    private static final LoanPolicy STANDARD = new StandardLoanPolicy();
+    private static final LoanPolicy PREMIUM = new PremiumLoanPolicy();
+    private static final List<Loan> LOTE = Arrays.asList(LoanFixtures.PRESTAMOS);
+
+    @State(Scope.Benchmark)
+    public static class Servicios {
+
+        final LoanService service = new LoanService(STANDARD, new CanalVacio());
+        final LoanService conMetricas = new LoanService(STANDARD, new CanalVacio(), new InMemoryLoanMetrics());
+        final FullLoanService sinRegistro = new FullLoanService(STANDARD, new CanalVacio());
+        CoalescingLoanNotifier notificador;
+        BulkLoanProcessor bulk;
+
+        @Setup(Level.Trial)
+        public void abrir() {
+            notificador = new CoalescingLoanNotifier(new CanalVacio(), 20, 1000, 10_000);
+            bulk = new BulkLoanProcessor(new LoanService(STANDARD, new CanalVacio()));
+        }
+
+        @TearDown(Level.Trial)
+        public void cerrar() {
+            notificador.close();
+            bulk.close();
+        }
+    }
+
+    /**
+     * Servicios con un ConcurrentLoanRegistry detrás, compartido por todos los hilos.
+     */
+    @State(Scope.Benchmark)
+    public static class Registros {
+
+        AsyncLoanAuditSink auditoriaMuestreada;
+        AsyncLoanAuditSink auditoriaCompleta;
+        FullLoanService completo;
+        StatisticsService estadisticas;
+        StatisticsService conAuditoriaMuestreada;
+        StatisticsService conAuditoriaCompleta;
+
+        @Setup(Level.Trial)
+        public void abrir() {
+            auditoriaMuestreada = new AsyncLoanAuditSink(
+                    new PrintStream(OutputStream.nullOutputStream()), 100, 0, 8192, 256, 100);
+            auditoriaCompleta = new AsyncLoanAuditSink(new PrintStream(OutputStream.nullOutputStream()));
+        }
+
+        @Setup(Level.Iteration)
+        public void vaciar() {
+            completo = new FullLoanService(PREMIUM, new CanalVacio(), new ConcurrentLoanRegistry());
+            estadisticas = new StatisticsService(new ConcurrentLoanRegistry());
+            conAuditoriaMuestreada = new StatisticsService(new ConcurrentLoanRegistry(), auditoriaMuestreada);
+            conAuditoriaCompleta = new StatisticsService(new ConcurrentLoanRegistry(), auditoriaCompleta);
+        }
+
+        @TearDown(Level.Trial)
+        public void cerrar() {
+            auditoriaMuestreada.close();
+            auditoriaCompleta.close();
+        }
+    }
+
+    @Benchmark
+    public double loanServiceProcessLoan(Servicios s, Cursor cursor) {
+        return s.service.processLoan(cursor.siguiente());
+    }
+
+    @Benchmark
+    public double loanServiceProcessLoanConMetricas(Servicios s, Cursor cursor) {
+        return s.conMetricas.processLoan(cursor.siguiente());
+    }
+
+    // Un mensaje por préstamo contra un resumen por prestatario (grupos de 20)
+    @Benchmark
+    public void fullLoanServiceNotifyLoan(Servicios s, Cursor cursor) {
+        s.sinRegistro.notifyLoan(cursor.siguiente(), "devolver en 14 días");
+    }
+
+    @Benchmark
+    public void coalescingLoanNotifierNotifyLoan(Servicios s, Cursor cursor) {
+        s.notificador.notifyLoan(cursor.siguiente(), "devolver en 14 días");
+    }
+
+    @Benchmark
+    public double fullLoanServiceProcessLoanFully(Registros r, Cursor cursor) {
+        return r.completo.processLoanFully(cursor.siguiente());
+    }
+
+    // Sin auditoría tiene que costar lo mismo que el registro solo; con ella, lo que cuesta encolar
+    @Benchmark
+    public void statisticsServiceRegisterLoanWithCost(Registros r, Cursor cursor) {
+        r.estadisticas.registerLoanWithCost(cursor.siguiente(), 1.0);
+    }
+
+    @Benchmark
+    public void statisticsServiceRegisterLoanWithCostAuditoria1de100(Registros r, Cursor cursor) {
+        r.conAuditoriaMuestreada.registerLoanWithCost(cursor.siguiente(), 1.0);
+    }
+
+    @Benchmark
+    public void statisticsServiceRegisterLoanWithCostAuditoriaCompleta(Registros r, Cursor cursor) {
+        r.conAuditoriaCompleta.registerLoanWithCost(cursor.siguiente(), 1.0);
+    }
+
+    // Un lote entero por operación, repartido entre todos los núcleos
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public double bulkLoanProcessorProcess(Servicios s) {
+        return s.bulk.process(LOTE).getTotalRevenue();
+    }
+}
@@ -1,3 +1,4 @@
+import audit.AsyncLoanAuditSink;
 import library.Book;
 import library.Loan;
 import notification.ConsoleNotification;
@@ -5,6 +6,7 @@ import notification.NotificationChannel;
 import policy.LoanPolicy;
 import policy.PremiumLoanPolicy;
 import policy.StandardLoanPolicy;
+import registry.ColumnarLoanRegistry;
 import service.LoanService;
 import isp.*;
 
@@ -177,9 +179,12 @@ public class Main {
         
         // StatisticsService - solo implementa LoanRegistry
         System.out.println("StatisticsService (solo estadísticas):");
-        StatisticsService stats = new StatisticsService();
+        // La auditoría va aparte y en segundo plano; se cierra para que salga antes de las estadísticas
+        AsyncLoanAuditSink auditoria = new AsyncLoanAuditSink(System.out);
+        StatisticsService stats = new StatisticsService(new ColumnarLoanRegistry(), auditoria);
         stats.registerLoanWithCost(prestamo1, 12.0);
         stats.registerLoanWithCost(prestamo2, 23.0);
+        auditoria.close();
         stats.printStatistics();
         System.out.println("  -> No calcula costes ni notifica (no lo necesita)\n");
         
@@ -0,0 +1,282 @@
+package audit;
+
+import library.Loan;
+import notification.MoneyFormat;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Auditoría que escribe los registros en segundo plano y por lotes.
+ *
+ * recordRegistration solo decide si el préstamo se audita y, si es así, lo deja en
+ * una cola acotada; no formatea ni toca el PrintStream. Un hilo aparte saca lotes de
+ * la cola, monta todas sus líneas en un StringBuilder y las escribe de una vez, así
+ * el lock del PrintStream se coge una vez por lote y no una por préstamo.
+ *
+ * Para no auditar todo:
+ * - muestreo = N apunta, al azar, uno de cada N préstamos (1 = todos).
+ * - maxPorSegundo limita cuántos se apuntan en cada segundo de reloj (0 = sin límite).
+ * Si la cola está llena el registro se descarta: la auditoría nunca frena el registro.
+ * Cada motivo tiene su contador. close() espera a las llamadas que ya estaban encolando
+ * y escribe lo que quede en la cola; lo que llegue después de cerrar se ignora.
+ */
+public class AsyncLoanAuditSink implements LoanAuditSink, AutoCloseable {
+
+    private static final String PREFIJO = "[REGISTRO] Préstamo añadido: ";
+    private static final int CAPACIDAD_POR_DEFECTO = 8192;
+    private static final int LOTE_POR_DEFECTO = 256;
+    private static final long INTERVALO_POR_DEFECTO = 100;
+
+    private final PrintStream destino;
+    private final int muestreo;
+    private final int maxPorSegundo;
+    private final BlockingQueue<Registro> cola;
+    private final int tamanoLote;
+    private final long intervaloFlushMillis;
+    private final Thread worker;
+
+    // Segundo actual (32 bits altos) y registros aceptados en él (32 bits bajos)
+    private final AtomicLong ventana;
+    private final AtomicInteger llamadasEnCurso;
+    private final AtomicLong aceptados;
+    private final AtomicLong escritos;
+    private final AtomicLong noMuestreados;
+    private final AtomicLong limitados;
+    private final AtomicLong descartados;
+    private volatile boolean cerrado;
+
+    public AsyncLoanAuditSink(PrintStream destino) {
+        this(destino, 1, 0, CAPACIDAD_POR_DEFECTO, LOTE_POR_DEFECTO, INTERVALO_POR_DEFECTO);
+    }
+
+    public AsyncLoanAuditSink(PrintStream destino, int muestreo, int maxPorSegundo, int capacidad,
+                              int tamanoLote, long intervaloFlushMillis) {
+        if (destino == null) {
+            throw new IllegalArgumentException("El destino no puede ser null");
+        }
+        if (muestreo <= 0) {
+            throw new IllegalArgumentException("El muestreo debe ser mayor que 0");
+        }
+        if (maxPorSegundo < 0) {
+            throw new IllegalArgumentException("El máximo por segundo no puede ser negativo");
+        }
+        if (capacidad <= 0) {
+            throw new IllegalArgumentException("La capacidad debe ser mayor que 0");
+        }
+        if (tamanoLote <= 0) {
+            throw new IllegalArgumentException("El tamaño de lote debe ser mayor que 0");
+        }
+        if (intervaloFlushMillis <= 0) {
+            throw new IllegalArgumentException("El intervalo de flush debe ser mayor que 0");
+        }
+
+        this.destino = destino;
+        this.muestreo = muestreo;
+        this.maxPorSegundo = maxPorSegundo;
+        this.cola = new ArrayBlockingQueue<>(capacidad);
+        this.tamanoLote = tamanoLote;
+        this.intervaloFlushMillis = intervaloFlushMillis;
+        this.ventana = new AtomicLong();
+        this.llamadasEnCurso = new AtomicInteger();
+        this.aceptados = new AtomicLong();
+        this.escritos = new AtomicLong();
+        this.noMuestreados = new AtomicLong();
+        this.limitados = new AtomicLong();
+        this.descartados = new AtomicLong();
+        this.cerrado = false;
+
+        this.worker = new Thread(this::vaciarCola, "auditoria");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    @Override
+    public void recordRegistration(Loan loan, long costeMillis, String policyName) {
+        if (cerrado) {
+            return;
+        }
+        if (muestreo > 1 && ThreadLocalRandom.current().nextInt(muestreo) != 0) {
+            noMuestreados.incrementAndGet();
+            return;
+        }
+        if (maxPorSegundo > 0 && !dentroDelLimite()) {
+            limitados.incrementAndGet();
+            return;
+        }
+        // close() espera a que terminen los que ya pasaron esta comprobación de cerrado
+        llamadasEnCurso.incrementAndGet();
+        try {
+            if (cerrado) {
+                return;
+            }
+            if (cola.offer(new Registro(loan, costeMillis, policyName))) {
+                aceptados.incrementAndGet();
+            } else {
+                descartados.incrementAndGet();
+            }
+        } finally {
+            llamadasEnCurso.decrementAndGet();
+        }
+    }
+
+    // Cuenta el registro en el segundo actual si aún cabe; el cambio de segundo reinicia la cuenta
+    private boolean dentroDelLimite() {
+        long segundo = (System.currentTimeMillis() / 1000) & 0xFFFFFFFFL;
+        while (true) {
+            long actual = ventana.get();
+            if (actual >>> 32 != segundo) {
+                if (ventana.compareAndSet(actual, segundo << 32 | 1)) {
+                    return true;
+                }
+            } else if ((actual & 0xFFFFFFFFL) >= maxPorSegundo) {
+                return false;
+            } else if (ventana.compareAndSet(actual, actual + 1)) {
+                return true;
+            }
+        }
+    }
+
+    // Bucle del hilo de fondo: saca un lote y lo escribe de una vez
+    private void vaciarCola() {
+        List<Registro> lote = new ArrayList<>(tamanoLote);
+        StringBuilder sb = new StringBuilder(128 * tamanoLote);
+        while (true) {
+            try {
+                Registro primero = cola.poll(intervaloFlushMillis, TimeUnit.MILLISECONDS);
+                if (primero == null) {
+                    if (cerrado && cola.isEmpty()) {
+                        return;
+                    }
+                    continue;
+                }
+                lote.add(primero);
+                cola.drainTo(lote, tamanoLote - 1);
+            } catch (InterruptedException e) {
+                // Si alguien interrumpe el hilo, escribimos lo que quede y salimos
+                cola.drainTo(lote);
+                escribir(lote, sb);
+                return;
+            }
+            escribir(lote, sb);
+        }
+    }
+
+    private void escribir(List<Registro> lote, StringBuilder sb) {
+        sb.setLength(0);
+        for (Registro registro : lote) {
+            registro.appendTo(sb).append(System.lineSeparator());
+        }
+        destino.print(sb);
+        destino.flush();
+        escritos.addAndGet(lote.size());
+        lote.clear();
+        if (sb.capacity() > 1024 * 1024) {
+            sb.setLength(0);
+            sb.trimToSize();
+        }
+    }
+
+    /**
+     * Deja de aceptar registros, escribe los que haya en la cola y para el hilo de fondo.
+     */
+    @Override
+    public void close() {
+        cerrado = true;
+        // Los que ya pasaron la comprobación de cerrado terminan de encolar; los que
+        // lleguen después ven cerrado y no encolan, así nada queda en la cola sin escribir
+        while (llamadasEnCurso.get() > 0) {
+            Thread.yield();
+        }
+        boolean interrumpido = false;
+        while (worker.isAlive()) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                interrumpido = true;
+            }
+        }
+        // Lo que se encoló mientras el hilo de fondo terminaba
+        List<Registro> resto = new ArrayList<>();
+        cola.drainTo(resto);
+        if (!resto.isEmpty()) {
+            escribir(resto, new StringBuilder());
+        }
+        if (interrumpido) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public long getAcceptedCount() {
+        return aceptados.get();
+    }
+
+    public long getWrittenCount() {
+        return escritos.get();
+    }
+
+    public int getQueueDepth() {
+        return cola.size();
+    }
+
+    /**
+     * Registros que no se apuntaron por el muestreo.
+     */
+    public long getSampledOutCount() {
+        return noMuestreados.get();
+    }
+
+    /**
+     * Registros que no se apuntaron por pasar de maxPorSegundo.
+     */
+    public long getRateLimitedCount() {
+        return limitados.get();
+    }
+
+    /**
+     * Registros descartados por tener la cola llena.
+     */
+    public long getDroppedCount() {
+        return descartados.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("AsyncLoanAuditSink[escritos=%d, muestreo=1/%d, máx/s=%d, descartados=%d]",
+                           escritos.get(), muestreo, maxPorSegundo, descartados.get());
+    }
+
+    /**
+     * Un préstamo pendiente de escribir; se formatea ya en el hilo de fondo.
+     */
+    private static class Registro {
+        final Loan loan;
+        final long costeMillis;
+        final String policyName;
+
+        Registro(Loan loan, long costeMillis, String policyName) {
+            this.loan = loan;
+            this.costeMillis = costeMillis;
+            this.policyName = policyName;
+        }
+
+        // Mismo texto que Loan.toString(), sin String.format, más el coste y la política
+        StringBuilder appendTo(StringBuilder sb) {
+            sb.append(PREFIJO)
+              .append("Loan[libro='").append(loan.getBook().getTitle())
+              .append("', prestatario='").append(loan.getBorrowerName())
+              .append("', días=").append(loan.getDaysLoaned()).append("] | Coste: ");
+            MoneyFormat.appendMillis(sb, costeMillis).append('€');
+            if (policyName != null) {
+                sb.append(" | Política: ").append(policyName);
+            }
+            return sb;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package audit;
+
+import library.Loan;
+
+/**
+ * Dónde se apunta cada préstamo registrado, para auditoría.
+ * 
+ * Quien registra llama a recordRegistration en su propio hilo, así que una
+ * implementación debe volver enseguida: nada de E/S ni locks compartidos ahí.
+ * 
+ * NONE no hace nada; es lo que usan los servicios si no se les pasa otra cosa,
+ * y al ser una sola clase el JIT deja la llamada en nada.
+ */
+public interface LoanAuditSink {
+    
+    LoanAuditSink NONE = new NoopLoanAuditSink();
+    
+    /**
+     * policyName puede ser null si el préstamo se registró sin política.
+     */
+    void recordRegistration(Loan loan, long costeMillis, String policyName);
+}
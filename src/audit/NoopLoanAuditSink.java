@@ -0,0 +1,18 @@
+package audit;
+
+import library.Loan;
+
+/**
+ * Auditoría desactivada: no hace nada.
+ */
+final class NoopLoanAuditSink implements LoanAuditSink {
+    
+    @Override
+    public void recordRegistration(Loan loan, long costeMillis, String policyName) {
+    }
+    
+    @Override
+    public String toString() {
+        return "Auditoría desactivada";
+    }
+}
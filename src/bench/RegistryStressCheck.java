@@ -0,0 +1,139 @@
+package bench;
+
+import isp.LoanRegistry;
+import library.Book;
+import library.Loan;
+import registry.ConcurrentLoanRegistry;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Supplier;
+
+/**
+ * Prueba de estrés de ConcurrentLoanRegistry: N hilos registran M préstamos cada uno
+ * a la vez, y al final los totales tienen que ser exactos (N x M préstamos y la suma
+ * conocida de sus costes). Lo repite con 1, 2, 4 y 8 hilos.
+ *
+ * También muestra registros/s (mediana de varias rondas, tras calentar con todos los
+ * números de hilos) y la proporción respecto a un hilo. Eso no es escalado: todos los
+ * hilos añaden al final de la misma ConcurrentLinkedQueue, así que aunque haya núcleos
+ * libres no crece en línea con los hilos, y con más hilos que núcleos solo se ve el
+ * coste de repartirse la CPU. Se imprime cuántos núcleos hay para leerlo bien; para
+ * medir en serio está RegistryBenchmarks (JMH).
+ *
+ * Uso: java -cp src bench.RegistryStressCheck
+ * Los préstamos por hilo se cambian con -Destres.registros=M (por defecto 250000).
+ * Si algún total no cuadra termina con IllegalStateException.
+ */
+public class RegistryStressCheck {
+
+    private static final int[] HILOS = {1, 2, 4, 8};
+    private static final int RONDAS_CALENTAMIENTO = 3;
+    private static final int RONDAS_MEDIDAS = 5;
+    private static final int NUM_PRESTAMOS = 1024;
+    private static final int MASCARA = NUM_PRESTAMOS - 1;
+
+    public static void main(String[] args) {
+        int registros = Integer.getInteger("estres.registros", 250_000);
+        if (registros <= 0) {
+            throw new IllegalArgumentException("Los registros por hilo deben ser mayor que 0");
+        }
+        Loan[] prestamos = crearPrestamos();
+
+        int nucleos = Runtime.getRuntime().availableProcessors();
+
+        // Rondas sin medir con cada número de hilos, para que el JIT haya compilado
+        // también el camino con contención antes de la primera medida
+        for (int ronda = 0; ronda < RONDAS_CALENTAMIENTO; ronda++) {
+            for (int hilos : HILOS) {
+                ejecutar(ConcurrentLoanRegistry::new, prestamos, hilos, registros);
+            }
+        }
+
+        System.out.printf("ConcurrentLoanRegistry: %d préstamos por hilo, %d núcleo(s) disponibles, "
+                          + "mediana de %d rondas%n", registros, nucleos, RONDAS_MEDIDAS);
+        double base = 0;
+        for (int hilos : HILOS) {
+            double porSegundo = mediana(prestamos, hilos, registros);
+            if (base == 0) {
+                base = porSegundo;
+            }
+            System.out.printf("%3d hilo(s) %14.0f registros/s   %.2f respecto a 1 hilo   totales exactos%s%n",
+                              hilos, porSegundo, porSegundo / base,
+                              hilos > nucleos ? "   (más hilos que núcleos)" : "");
+        }
+    }
+
+    private static double mediana(Loan[] prestamos, int hilos, int registros) {
+        double[] medidas = new double[RONDAS_MEDIDAS];
+        for (int ronda = 0; ronda < RONDAS_MEDIDAS; ronda++) {
+            // Que la basura de la ronda anterior no se cobre en esta
+            System.gc();
+            medidas[ronda] = ejecutar(ConcurrentLoanRegistry::new, prestamos, hilos, registros);
+        }
+        Arrays.sort(medidas);
+        return medidas[RONDAS_MEDIDAS / 2];
+    }
+
+    // Registra y comprueba los totales; devuelve registros por segundo
+    private static double ejecutar(Supplier<LoanRegistry> fabrica, Loan[] prestamos, int hilos, int registros) {
+        LoanRegistry registro = fabrica.get();
+        CountDownLatch salida = new CountDownLatch(1);
+        Thread[] trabajadores = new Thread[hilos];
+        for (int h = 0; h < hilos; h++) {
+            trabajadores[h] = new Thread(() -> {
+                try {
+                    salida.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < registros; i++) {
+                    registro.registerLoanWithCostMillis(prestamos[i & MASCARA], coste(i));
+                }
+            }, "estres-" + h);
+            trabajadores[h].start();
+        }
+
+        long inicio = System.nanoTime();
+        salida.countDown();
+        for (Thread t : trabajadores) {
+            try {
+                t.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Prueba de estrés interrumpida", e);
+            }
+        }
+        long transcurrido = System.nanoTime() - inicio;
+
+        long esperados = (long) hilos * registros;
+        long ingresosEsperados = 0;
+        for (int i = 0; i < registros; i++) {
+            ingresosEsperados += coste(i);
+        }
+        ingresosEsperados *= hilos;
+        if (registro.getTotalLoansProcessed() != esperados) {
+            throw new IllegalStateException("Se esperaban " + esperados + " préstamos y hay "
+                    + registro.getTotalLoansProcessed());
+        }
+        if (registro.getTotalRevenueMillis() != ingresosEsperados) {
+            throw new IllegalStateException("Se esperaban " + ingresosEsperados + " milésimas de ingresos y hay "
+                    + registro.getTotalRevenueMillis());
+        }
+        return esperados * 1e9 / transcurrido;
+    }
+
+    // Costes distintos según la iteración, para que un registro perdido cambie la suma
+    private static long coste(int i) {
+        return 500 + (i % 97) * 10;
+    }
+
+    private static Loan[] crearPrestamos() {
+        Loan[] prestamos = new Loan[NUM_PRESTAMOS];
+        for (int i = 0; i < NUM_PRESTAMOS; i++) {
+            Book libro = new Book("Libro " + (i % 100), "Autor " + (i % 37), "978-" + (i % 100));
+            prestamos[i] = new Loan(libro, "Prestatario " + (i % 250), 1 + (i * 7) % 60);
+        }
+        return prestamos;
+    }
+}
@@ -0,0 +1,70 @@
+package codec;
+
+import library.Book;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Catálogo de libros que comparten quien codifica y quien decodifica.
+ *
+ * Cada libro tiene un número (su posición, desde 0). Con el diccionario, LoanCodec
+ * escribe solo ese número en lugar del título, el autor y el ISBN, y al leer devuelve
+ * el mismo objeto Book del diccionario. Los dos extremos deben tener los mismos libros
+ * en el mismo orden.
+ *
+ * Se llena antes de empezar a codificar y después solo se lee; así se puede usar
+ * desde varios hilos sin locks. Añadir libros mientras otro hilo codifica no es seguro.
+ */
+public class BookDictionary {
+
+    private final List<Book> libros;
+    private final Map<String, Integer> porIsbn;
+
+    public BookDictionary() {
+        this.libros = new ArrayList<>();
+        this.porIsbn = new HashMap<>();
+    }
+
+    /**
+     * Añade el libro y devuelve su número; si ya había uno con ese ISBN, devuelve el de ese.
+     */
+    public int add(Book libro) {
+        if (libro == null) {
+            throw new IllegalArgumentException("El libro no puede ser null");
+        }
+        Integer existente = porIsbn.get(libro.getIsbn());
+        if (existente != null) {
+            return existente;
+        }
+        int numero = libros.size();
+        libros.add(libro);
+        porIsbn.put(libro.getIsbn(), numero);
+        return numero;
+    }
+
+    /**
+     * Número del libro con ese ISBN, o -1 si no está.
+     */
+    public int indexOf(String isbn) {
+        Integer numero = porIsbn.get(isbn);
+        return numero == null ? -1 : numero;
+    }
+
+    public Book get(int numero) {
+        if (numero < 0 || numero >= libros.size()) {
+            throw new IllegalArgumentException("No hay ningún libro con el número " + numero);
+        }
+        return libros.get(numero);
+    }
+
+    public int size() {
+        return libros.size();
+    }
+
+    @Override
+    public String toString() {
+        return "BookDictionary[libros=" + libros.size() + "]";
+    }
+}
@@ -0,0 +1,279 @@
+package codec;
+
+import library.Book;
+import library.Loan;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Formato binario compacto para Book y Loan.
+ *
+ * Un préstamo es: [días][prestatario][libro]
+ * - días: varint (7 bits por byte, el bit alto indica que sigue otro byte).
+ * - texto: longitud en bytes como varint y después el UTF-8.
+ * - libro: una etiqueta varint. 0 = el libro va entero ([título][autor][ISBN]);
+ *   n > 0 = el libro número n - 1 del BookDictionary.
+ * Hasta 127 días ocupan un byte y, con diccionario, el libro se queda en 1 o 2 bytes.
+ * Los lotes son préstamos seguidos, sin cabecera.
+ *
+ * Se escribe y se lee directamente del ByteBuffer que pasa quien llama (heap o directo):
+ * el UTF-8 se codifica a mano y al leer solo se crean los String y los objetos del
+ * resultado. Si un préstamo no cabe o está a medias, la posición del buffer se deja
+ * donde estaba, así se puede reintentar cuando haya más sitio o más datos.
+ *
+ * Reutiliza un array entre lecturas de buffers directos, así que una instancia no es
+ * thread-safe; se usa una por hilo (el diccionario sí se puede compartir).
+ */
+public class LoanCodec {
+
+    // Un texto más largo es un error en los datos, no algo que haya que esperar
+    private static final int MAX_BYTES_TEXTO = 64 * 1024;
+    private static final int LIBRO_COMPLETO = 0;
+
+    private final BookDictionary diccionario;
+    private byte[] bytesTexto;
+
+    public LoanCodec() {
+        this(null);
+    }
+
+    /**
+     * El diccionario puede ser null; entonces los libros siempre van enteros.
+     */
+    public LoanCodec(BookDictionary diccionario) {
+        this.diccionario = diccionario;
+        this.bytesTexto = new byte[256];
+    }
+
+    // === Escritura ===
+
+    /**
+     * Escribe el préstamo en la posición actual del buffer.
+     * Si no cabe lanza BufferOverflowException; si falla, la posición se queda como estaba.
+     */
+    public void encode(Loan loan, ByteBuffer destino) {
+        if (loan == null) {
+            throw new IllegalArgumentException("El préstamo no puede ser null");
+        }
+        int inicio = destino.position();
+        try {
+            Varint.write(destino, loan.getDaysLoaned());
+            escribirTexto(destino, loan.getBorrowerName());
+            escribirLibro(destino, loan.getBook());
+        } catch (RuntimeException e) {
+            destino.position(inicio);
+            throw e;
+        }
+    }
+
+    /**
+     * Igual que encode pero solo el libro.
+     */
+    public void encodeBook(Book libro, ByteBuffer destino) {
+        if (libro == null) {
+            throw new IllegalArgumentException("El libro no puede ser null");
+        }
+        int inicio = destino.position();
+        try {
+            escribirLibro(destino, libro);
+        } catch (RuntimeException e) {
+            destino.position(inicio);
+            throw e;
+        }
+    }
+
+    /**
+     * Escribe los préstamos desde la posición indicada hasta que se acaban o el
+     * siguiente ya no cabe. Devuelve cuántos ha escrito.
+     */
+    public int encodeAll(List<Loan> loans, int desde, ByteBuffer destino) {
+        if (loans == null) {
+            throw new IllegalArgumentException("La lista de préstamos no puede ser null");
+        }
+        int escritos = 0;
+        for (int i = desde; i < loans.size(); i++) {
+            try {
+                encode(loans.get(i), destino);
+            } catch (BufferOverflowException e) {
+                break;
+            }
+            escritos++;
+        }
+        return escritos;
+    }
+
+    /**
+     * Bytes que ocupará el préstamo codificado.
+     * Lanza IllegalArgumentException, igual que encode, si algún texto no se puede codificar.
+     */
+    public int encodedSize(Loan loan) {
+        return Varint.size(loan.getDaysLoaned())
+                + tamanoTexto(loan.getBorrowerName())
+                + tamanoLibro(loan.getBook());
+    }
+
+    private void escribirLibro(ByteBuffer destino, Book libro) {
+        int numero = diccionario == null ? -1 : diccionario.indexOf(libro.getIsbn());
+        if (numero >= 0) {
+            Varint.write(destino, numero + 1);
+            return;
+        }
+        destino.put((byte) LIBRO_COMPLETO);
+        escribirTexto(destino, libro.getTitle());
+        escribirTexto(destino, libro.getAuthor());
+        escribirTexto(destino, libro.getIsbn());
+    }
+
+    private int tamanoLibro(Book libro) {
+        int numero = diccionario == null ? -1 : diccionario.indexOf(libro.getIsbn());
+        if (numero >= 0) {
+            return Varint.size(numero + 1);
+        }
+        return 1 + tamanoTexto(libro.getTitle()) + tamanoTexto(libro.getAuthor())
+                + tamanoTexto(libro.getIsbn());
+    }
+
+    // Primero se mide el UTF-8 para escribir la longitud delante
+    private static void escribirTexto(ByteBuffer destino, String texto) {
+        int longitud = Utf8.encodedLength(texto);
+        if (longitud > MAX_BYTES_TEXTO) {
+            throw new IllegalArgumentException("Texto demasiado largo para codificar: " + longitud + " bytes");
+        }
+        Varint.write(destino, longitud);
+        if (destino.remaining() < longitud) {
+            throw new BufferOverflowException();
+        }
+        Utf8.encode(texto, destino);
+    }
+
+    private static int tamanoTexto(String texto) {
+        int longitud = Utf8.encodedLength(texto);
+        if (longitud > MAX_BYTES_TEXTO) {
+            throw new IllegalArgumentException("Texto demasiado largo para codificar: " + longitud + " bytes");
+        }
+        return Varint.size(longitud) + longitud;
+    }
+
+    // === Lectura ===
+
+    /**
+     * Lee un préstamo desde la posición actual del buffer.
+     * Si está a medias lanza BufferUnderflowException y si los datos no son válidos,
+     * IllegalArgumentException; en los dos casos la posición se queda como estaba.
+     */
+    public Loan decode(ByteBuffer origen) {
+        int inicio = origen.position();
+        try {
+            int dias = Varint.read(origen);
+            String prestatario = leerTexto(origen);
+            Book libro = leerLibro(origen);
+            return new Loan(libro, prestatario, dias);
+        } catch (RuntimeException e) {
+            origen.position(inicio);
+            throw e;
+        }
+    }
+
+    public Book decodeBook(ByteBuffer origen) {
+        int inicio = origen.position();
+        try {
+            return leerLibro(origen);
+        } catch (RuntimeException e) {
+            origen.position(inicio);
+            throw e;
+        }
+    }
+
+    /**
+     * Lee préstamos hasta que se acaba el buffer y se los pasa al consumidor.
+     * Un préstamo a medias al final se deja sin leer. Devuelve cuántos ha leído.
+     */
+    public int decodeAll(ByteBuffer origen, Consumer<Loan> destino) {
+        if (destino == null) {
+            throw new IllegalArgumentException("El destino no puede ser null");
+        }
+        int leidos = 0;
+        while (origen.hasRemaining()) {
+            Loan loan;
+            try {
+                loan = decode(origen);
+            } catch (BufferUnderflowException e) {
+                break;
+            }
+            destino.accept(loan);
+            leidos++;
+        }
+        return leidos;
+    }
+
+    /**
+     * Igual que el anterior pero rellenando el array desde la posición desde,
+     * hasta que se llena o se acaba el buffer.
+     */
+    public int decodeAll(ByteBuffer origen, Loan[] destino, int desde) {
+        if (destino == null) {
+            throw new IllegalArgumentException("El destino no puede ser null");
+        }
+        int i = desde;
+        while (i < destino.length && origen.hasRemaining()) {
+            try {
+                destino[i] = decode(origen);
+            } catch (BufferUnderflowException e) {
+                break;
+            }
+            i++;
+        }
+        return i - desde;
+    }
+
+    private Book leerLibro(ByteBuffer origen) {
+        int etiqueta = Varint.read(origen);
+        if (etiqueta != LIBRO_COMPLETO) {
+            if (diccionario == null) {
+                throw new IllegalArgumentException("El libro viene del diccionario pero no hay diccionario");
+            }
+            return diccionario.get(etiqueta - 1);
+        }
+        String titulo = leerTexto(origen);
+        String autor = leerTexto(origen);
+        String isbn = leerTexto(origen);
+        return new Book(titulo, autor, isbn);
+    }
+
+    // Heap: el String se crea directamente desde el array del buffer. Directo: se copia a bytesTexto
+    private String leerTexto(ByteBuffer origen) {
+        int longitud = Varint.read(origen);
+        if (longitud > MAX_BYTES_TEXTO) {
+            throw new IllegalArgumentException("Texto de " + longitud + " bytes, el máximo es " + MAX_BYTES_TEXTO);
+        }
+        if (origen.remaining() < longitud) {
+            throw new BufferUnderflowException();
+        }
+        String texto;
+        if (origen.hasArray()) {
+            texto = new String(origen.array(), origen.arrayOffset() + origen.position(), longitud,
+                               StandardCharsets.UTF_8);
+            origen.position(origen.position() + longitud);
+        } else {
+            if (longitud > bytesTexto.length) {
+                bytesTexto = new byte[Math.max(longitud, bytesTexto.length * 2)];
+            }
+            origen.get(bytesTexto, 0, longitud);
+            texto = new String(bytesTexto, 0, longitud, StandardCharsets.UTF_8);
+        }
+        return texto;
+    }
+
+    public BookDictionary getDictionary() {
+        return diccionario;
+    }
+
+    @Override
+    public String toString() {
+        return "LoanCodec[" + (diccionario == null ? "sin diccionario" : diccionario) + "]";
+    }
+}
@@ -0,0 +1,105 @@
+package codec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * UTF-8 a mano, sin String.getBytes ni CharsetEncoder, para escribir directamente
+ * en un ByteBuffer o en un byte[] que ya se tiene. Da los mismos bytes que
+ * String.getBytes(UTF_8): un suplente suelto se cambia por '?'.
+ */
+public final class Utf8 {
+
+    private Utf8() {
+    }
+
+    /**
+     * Bytes que ocupa el texto en UTF-8.
+     */
+    public static int encodedLength(String texto) {
+        int n = texto.length();
+        int bytes = n;
+        for (int i = 0; i < n; i++) {
+            char c = texto.charAt(i);
+            if (c >= 0x80) {
+                if (c < 0x800) {
+                    bytes++;
+                } else if (Character.isHighSurrogate(c) && i + 1 < n
+                        && Character.isLowSurrogate(texto.charAt(i + 1))) {
+                    // Dos char que van en 4 bytes
+                    bytes += 2;
+                    i++;
+                } else if (!Character.isSurrogate(c)) {
+                    bytes += 2;
+                }
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Escribe el texto en la posición actual del buffer.
+     * Si no cabe lanza BufferOverflowException con parte del texto ya escrito.
+     */
+    public static void encode(String texto, ByteBuffer destino) {
+        int n = texto.length();
+        for (int i = 0; i < n; i++) {
+            char c = texto.charAt(i);
+            if (c < 0x80) {
+                destino.put((byte) c);
+            } else if (c < 0x800) {
+                destino.put((byte) (0xC0 | (c >> 6)));
+                destino.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < n
+                    && Character.isLowSurrogate(texto.charAt(i + 1))) {
+                int codigo = Character.toCodePoint(c, texto.charAt(++i));
+                destino.put((byte) (0xF0 | (codigo >> 18)));
+                destino.put((byte) (0x80 | ((codigo >> 12) & 0x3F)));
+                destino.put((byte) (0x80 | ((codigo >> 6) & 0x3F)));
+                destino.put((byte) (0x80 | (codigo & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                destino.put((byte) '?');
+            } else {
+                destino.put((byte) (0xE0 | (c >> 12)));
+                destino.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                destino.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    /**
+     * Escribe el texto en destino a partir de desde y devuelve la posición siguiente al
+     * último byte. destino debe tener sitio para 3 bytes por char del texto.
+     */
+    public static int encode(String texto, byte[] destino, int desde) {
+        int n = texto.length();
+        int j = desde;
+        for (int i = 0; i < n; i++) {
+            char c = texto.charAt(i);
+            if (c < 0x80) {
+                // Casi todo es ASCII: se copia el tramo seguido sin pasar por el resto de casos
+                destino[j++] = (byte) c;
+                while (i + 1 < n && (c = texto.charAt(i + 1)) < 0x80) {
+                    destino[j++] = (byte) c;
+                    i++;
+                }
+            } else if (c < 0x800) {
+                destino[j++] = (byte) (0xC0 | (c >> 6));
+                destino[j++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < n
+                    && Character.isLowSurrogate(texto.charAt(i + 1))) {
+                int codigo = Character.toCodePoint(c, texto.charAt(++i));
+                destino[j++] = (byte) (0xF0 | (codigo >> 18));
+                destino[j++] = (byte) (0x80 | ((codigo >> 12) & 0x3F));
+                destino[j++] = (byte) (0x80 | ((codigo >> 6) & 0x3F));
+                destino[j++] = (byte) (0x80 | (codigo & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                destino[j++] = (byte) '?';
+            } else {
+                destino[j++] = (byte) (0xE0 | (c >> 12));
+                destino[j++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                destino[j++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return j;
+    }
+}
@@ -0,0 +1,68 @@
+package codec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Enteros no negativos en varint: 7 bits por byte, el bit alto indica que sigue otro.
+ * Los valores pequeños (días, longitudes de texto) ocupan un solo byte.
+ * Lo usan LoanCodec y el protocolo del servidor, que escribe la longitud de cada petición.
+ */
+public final class Varint {
+
+    /** Un int ocupa como mucho 5 bytes. */
+    public static final int MAX_BYTES = 5;
+
+    private Varint() {
+    }
+
+    public static void write(ByteBuffer destino, int valor) {
+        while ((valor & ~0x7F) != 0) {
+            destino.put((byte) ((valor & 0x7F) | 0x80));
+            valor >>>= 7;
+        }
+        destino.put((byte) valor);
+    }
+
+    public static int size(int valor) {
+        int bytes = 1;
+        while ((valor & ~0x7F) != 0) {
+            valor >>>= 7;
+            bytes++;
+        }
+        return bytes;
+    }
+
+    /**
+     * Lee un varint desde la posición actual. Si está a medias lanza BufferUnderflowException;
+     * si es negativo o pasa de 5 bytes, IllegalArgumentException.
+     */
+    public static int read(ByteBuffer origen) {
+        int valor = 0;
+        for (int desplazamiento = 0; desplazamiento < 7 * MAX_BYTES; desplazamiento += 7) {
+            byte b = origen.get();
+            valor |= (b & 0x7F) << desplazamiento;
+            if (b >= 0) {
+                if (valor < 0) {
+                    throw new IllegalArgumentException("Varint fuera de rango");
+                }
+                return valor;
+            }
+        }
+        throw new IllegalArgumentException("Varint de más de 5 bytes");
+    }
+
+    /**
+     * true si ya hay bytes suficientes para que read() termine, con el valor o con error.
+     * No mueve la posición; sirve para esperar a que llegue el resto sin capturar excepciones.
+     */
+    public static boolean canRead(ByteBuffer origen) {
+        int posicion = origen.position();
+        int hasta = Math.min(origen.limit(), posicion + MAX_BYTES);
+        for (int i = posicion; i < hasta; i++) {
+            if (origen.get(i) >= 0) {
+                return true;
+            }
+        }
+        return hasta - posicion == MAX_BYTES;
+    }
+}
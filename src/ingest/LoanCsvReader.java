@@ -0,0 +1,265 @@
+package ingest;
+
+import library.Book;
+import library.BookCache;
+import library.Loan;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Lee préstamos de un CSV grande sin cargarlo entero en memoria.
+ *
+ * Cada línea es "título,autor,ISBN,prestatario,días" en UTF-8. El fichero se mapea
+ * en memoria por ventanas (por defecto 64 MB) y se recorre byte a byte: solo se crean
+ * los String de cada campo y el Book/Loan de las filas válidas. No hay comillas ni
+ * escapes, así que los campos no pueden contener comas.
+ *
+ * Las filas se validan con los propios constructores de Book y Loan, así las reglas
+ * son exactamente las mismas. Las filas incorrectas no paran la lectura: se avisan
+ * al ErrorHandler con su número de línea y el motivo.
+ *
+ * Con una BookCache, el libro se busca primero por ISBN: si ya estaba no se crean
+ * los String del título y el autor ni otro Book. Aun así se comprueba que esos campos
+ * no estén en blanco, con el mismo mensaje que Book, para validar igual que sin caché.
+ */
+public class LoanCsvReader {
+
+    /**
+     * Recibe las filas que no se han podido convertir en préstamo.
+     */
+    public interface ErrorHandler {
+        void malformedRow(long lineNumber, String reason);
+    }
+
+    private static final int COLUMNAS = 5;
+    private static final int VENTANA_POR_DEFECTO = 64 * 1024 * 1024;
+
+    private final boolean tieneCabecera;
+    private final int tamanoVentana;
+    private final BookCache cache;
+    private final Function<String, Book> crearLibro;
+
+    // Reutilizados entre filas; por eso un lector no es thread-safe
+    private final int[] inicioCampo;
+    private final int[] finCampo;
+    private byte[] bytesCampo;
+    private MappedByteBuffer ventanaActual;
+
+    public LoanCsvReader() {
+        this(false);
+    }
+
+    public LoanCsvReader(boolean tieneCabecera) {
+        this(tieneCabecera, VENTANA_POR_DEFECTO, null);
+    }
+
+    public LoanCsvReader(boolean tieneCabecera, BookCache cache) {
+        this(tieneCabecera, VENTANA_POR_DEFECTO, cache);
+    }
+
+    /**
+     * La caché puede ser null si no se quieren reutilizar libros.
+     */
+    public LoanCsvReader(boolean tieneCabecera, int tamanoVentana, BookCache cache) {
+        if (tamanoVentana <= 0) {
+            throw new IllegalArgumentException("El tamaño de ventana debe ser mayor que 0");
+        }
+        this.tieneCabecera = tieneCabecera;
+        this.tamanoVentana = tamanoVentana;
+        this.cache = cache;
+        // Una sola lambda para toda la lectura: lee los campos de la fila actual
+        this.crearLibro = isbn -> new Book(leerTexto(ventanaActual, 0), leerTexto(ventanaActual, 1), isbn);
+        this.inicioCampo = new int[COLUMNAS];
+        this.finCampo = new int[COLUMNAS];
+        this.bytesCampo = new byte[256];
+    }
+
+    /**
+     * Lee el fichero entero pasando cada préstamo válido al consumidor.
+     * Devuelve cuántos préstamos válidos se han leído.
+     */
+    public long read(Path fichero, Consumer<Loan> destino, ErrorHandler errores) throws IOException {
+        if (fichero == null) {
+            throw new IllegalArgumentException("El fichero no puede ser null");
+        }
+        if (destino == null) {
+            throw new IllegalArgumentException("El destino no puede ser null");
+        }
+        if (errores == null) {
+            throw new IllegalArgumentException("El manejador de errores no puede ser null");
+        }
+
+        Lectura lectura = new Lectura(destino, errores);
+        try (FileChannel canal = FileChannel.open(fichero, StandardOpenOption.READ)) {
+            long tamano = canal.size();
+            long posicion = 0;
+            while (posicion < tamano) {
+                long longitud = Math.min(tamanoVentana, tamano - posicion);
+                boolean ultima = posicion + longitud == tamano;
+                MappedByteBuffer ventana = canal.map(FileChannel.MapMode.READ_ONLY, posicion, longitud);
+
+                int consumidos = procesarVentana(ventana, ultima, lectura);
+                if (consumidos == 0) {
+                    throw new IOException("La línea " + (lectura.linea + 1)
+                            + " no cabe en una ventana de " + tamanoVentana + " bytes");
+                }
+                posicion += consumidos;
+            }
+        }
+        return lectura.leidos;
+    }
+
+    // Procesa las líneas completas de la ventana y devuelve los bytes consumidos
+    private int procesarVentana(MappedByteBuffer ventana, boolean ultima, Lectura lectura) {
+        ventanaActual = ventana;
+        int limite = ventana.limit();
+        int inicioLinea = 0;
+        int campo = 0;
+        inicioCampo[0] = 0;
+
+        for (int i = 0; i < limite; i++) {
+            byte b = ventana.get(i);
+            if (b == ',') {
+                if (campo < COLUMNAS) {
+                    finCampo[campo] = i;
+                }
+                campo++;
+                if (campo < COLUMNAS) {
+                    inicioCampo[campo] = i + 1;
+                }
+            } else if (b == '\n') {
+                procesarLinea(ventana, inicioLinea, i, campo, lectura);
+                inicioLinea = i + 1;
+                campo = 0;
+                inicioCampo[0] = inicioLinea;
+            }
+        }
+
+        // La última línea del fichero puede no acabar en salto de línea
+        if (ultima && inicioLinea < limite) {
+            procesarLinea(ventana, inicioLinea, limite, campo, lectura);
+            inicioLinea = limite;
+        }
+        return inicioLinea;
+    }
+
+    private void procesarLinea(MappedByteBuffer ventana, int inicio, int fin, int comas, Lectura lectura) {
+        lectura.linea++;
+        if (fin > inicio && ventana.get(fin - 1) == '\r') {
+            fin--;
+        }
+        if (fin == inicio) {
+            return;
+        }
+        if (tieneCabecera && lectura.linea == 1) {
+            return;
+        }
+        if (comas != COLUMNAS - 1) {
+            lectura.errores.malformedRow(lectura.linea,
+                    "Se esperaban " + COLUMNAS + " columnas y hay " + (comas + 1));
+            return;
+        }
+        finCampo[COLUMNAS - 1] = fin;
+
+        int dias = leerEntero(ventana, inicioCampo[4], finCampo[4]);
+        if (dias == Integer.MIN_VALUE) {
+            lectura.errores.malformedRow(lectura.linea, "Los días no son un número entero");
+            return;
+        }
+
+        Loan loan;
+        try {
+            Book libro;
+            if (cache == null) {
+                libro = new Book(leerTexto(ventana, 0), leerTexto(ventana, 1), leerTexto(ventana, 2));
+            } else {
+                if (enBlanco(ventana, 0)) {
+                    throw new IllegalArgumentException("El título no puede estar vacío");
+                }
+                if (enBlanco(ventana, 1)) {
+                    throw new IllegalArgumentException("El autor no puede estar vacío");
+                }
+                libro = cache.computeIfAbsent(leerTexto(ventana, 2), crearLibro);
+            }
+            loan = new Loan(libro, leerTexto(ventana, 3), dias);
+        } catch (IllegalArgumentException e) {
+            lectura.errores.malformedRow(lectura.linea, e.getMessage());
+            return;
+        }
+        // Fuera del try: lo que lance el consumidor es suyo, no una fila mal formada
+        lectura.destino.accept(loan);
+        lectura.leidos++;
+    }
+
+    private String leerTexto(MappedByteBuffer ventana, int columna) {
+        int inicio = inicioCampo[columna];
+        int longitud = finCampo[columna] - inicio;
+        if (longitud > bytesCampo.length) {
+            bytesCampo = new byte[Math.max(longitud, bytesCampo.length * 2)];
+        }
+        for (int i = 0; i < longitud; i++) {
+            bytesCampo[i] = ventana.get(inicio + i);
+        }
+        return new String(bytesCampo, 0, longitud, StandardCharsets.UTF_8);
+    }
+
+    // Lo mismo que trim().isEmpty() sobre el texto: en UTF-8 los caracteres que quita
+    // trim() (hasta el espacio) son bytes sueltos, y los de varios bytes empiezan en 0x80
+    private boolean enBlanco(MappedByteBuffer ventana, int columna) {
+        for (int i = inicioCampo[columna]; i < finCampo[columna]; i++) {
+            if ((ventana.get(i) & 0xFF) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Entero con signo opcional y espacios alrededor; Integer.MIN_VALUE si no es válido
+    private static int leerEntero(MappedByteBuffer ventana, int inicio, int fin) {
+        while (inicio < fin && ventana.get(inicio) == ' ') {
+            inicio++;
+        }
+        while (fin > inicio && ventana.get(fin - 1) == ' ') {
+            fin--;
+        }
+        boolean negativo = inicio < fin && ventana.get(inicio) == '-';
+        if (negativo) {
+            inicio++;
+        }
+        if (inicio == fin) {
+            return Integer.MIN_VALUE;
+        }
+
+        long valor = 0;
+        for (int i = inicio; i < fin; i++) {
+            int digito = ventana.get(i) - '0';
+            if (digito < 0 || digito > 9) {
+                return Integer.MIN_VALUE;
+            }
+            valor = valor * 10 + digito;
+            if (valor > Integer.MAX_VALUE) {
+                return Integer.MIN_VALUE;
+            }
+        }
+        return (int) (negativo ? -valor : valor);
+    }
+
+    // Estado de una llamada a read()
+    private static class Lectura {
+        final Consumer<Loan> destino;
+        final ErrorHandler errores;
+        long linea;
+        long leidos;
+
+        Lectura(Consumer<Loan> destino, ErrorHandler errores) {
+            this.destino = destino;
+            this.errores = errores;
+        }
+    }
+}
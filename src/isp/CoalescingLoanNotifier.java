@@ -0,0 +1,345 @@
+package isp;
+
+import library.Loan;
+import notification.NotificationChannel;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LoanNotifier que junta las notificaciones de cada prestatario en un solo mensaje.
+ *
+ * FullLoanService.notifyLoan manda un mensaje por préstamo; si alguien se lleva veinte
+ * libros de golpe, son veinte mensajes. Aquí notifyLoan guarda el préstamo en el grupo
+ * de su prestatario y el canal recibe un resumen por grupo cuando:
+ * - el grupo llega a maxPorPrestatario préstamos,
+ * - pasan ventanaMillis desde el primer préstamo del grupo (lo mira un hilo de fondo), o
+ * - se llama a flush() o close().
+ *
+ * La memoria está acotada: como mucho maxPrestatarios grupos abiertos y, en cada grupo,
+ * MAX_DETALLE líneas distintas (las repetidas se cuentan, no se guardan otra vez).
+ * Si ya hay maxPrestatarios grupos, el préstamo de un prestatario nuevo se notifica
+ * en el momento, sin agrupar. El hueco de cada grupo se reserva con un contador antes
+ * de meterlo en el mapa, así el límite se cumple aunque lleguen muchos hilos a la vez.
+ *
+ * Si el canal falla al enviar un resumen o un préstamo sin agrupar, ese mensaje se
+ * pierde y se cuenta en getErrorCount(), pero los demás se siguen enviando.
+ *
+ * sendNotification no es de ningún prestatario y pasa directa al canal.
+ * Se puede usar desde varios hilos; el canal tiene que ser thread-safe.
+ */
+public class CoalescingLoanNotifier implements LoanNotifier, AutoCloseable {
+
+    private static final int MAX_DETALLE = 10;
+    private static final int MAX_POR_PRESTATARIO_DEFECTO = 50;
+    private static final long VENTANA_POR_DEFECTO = 1000;
+    private static final int MAX_PRESTATARIOS_DEFECTO = 10_000;
+
+    private final NotificationChannel channel;
+    private final int maxPorPrestatario;
+    private final long ventanaNanos;
+    private final int maxPrestatarios;
+    private final ConcurrentHashMap<String, Grupo> grupos;
+    // Grupos en el mapa más huecos reservados por quien está a punto de meter uno
+    private final AtomicInteger abiertos;
+    private final ScheduledExecutorService vaciador;
+
+    private final AtomicLong recibidos;
+    private final AtomicLong resumenes;
+    private final AtomicLong sinAgrupar;
+    private final AtomicLong errores;
+    private volatile boolean cerrado;
+
+    public CoalescingLoanNotifier(NotificationChannel channel) {
+        this(channel, MAX_POR_PRESTATARIO_DEFECTO, VENTANA_POR_DEFECTO, MAX_PRESTATARIOS_DEFECTO);
+    }
+
+    /**
+     * ventanaMillis = 0 desactiva la ventana de tiempo: los grupos solo se envían al
+     * llenarse, con flush() o al cerrar.
+     */
+    public CoalescingLoanNotifier(NotificationChannel channel, int maxPorPrestatario,
+                                  long ventanaMillis, int maxPrestatarios) {
+        if (channel == null) {
+            throw new IllegalArgumentException("El canal no puede ser null");
+        }
+        if (maxPorPrestatario <= 0) {
+            throw new IllegalArgumentException("El máximo por prestatario debe ser mayor que 0");
+        }
+        if (ventanaMillis < 0) {
+            throw new IllegalArgumentException("La ventana no puede ser negativa");
+        }
+        if (maxPrestatarios <= 0) {
+            throw new IllegalArgumentException("El máximo de prestatarios debe ser mayor que 0");
+        }
+
+        this.channel = channel;
+        this.maxPorPrestatario = maxPorPrestatario;
+        this.ventanaNanos = TimeUnit.MILLISECONDS.toNanos(ventanaMillis);
+        this.maxPrestatarios = maxPrestatarios;
+        this.grupos = new ConcurrentHashMap<>();
+        this.abiertos = new AtomicInteger();
+        this.recibidos = new AtomicLong();
+        this.resumenes = new AtomicLong();
+        this.sinAgrupar = new AtomicLong();
+        this.errores = new AtomicLong();
+        this.cerrado = false;
+
+        if (ventanaMillis > 0) {
+            this.vaciador = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread hilo = new Thread(r, "agrupador-" + channel.getChannelName());
+                hilo.setDaemon(true);
+                return hilo;
+            });
+            // Revisando a media ventana, un grupo espera como mucho 1,5 ventanas
+            long revision = Math.max(1, ventanaMillis / 2);
+            this.vaciador.scheduleWithFixedDelay(this::enviarCaducados,
+                    revision, revision, TimeUnit.MILLISECONDS);
+        } else {
+            this.vaciador = null;
+        }
+    }
+
+    @Override
+    public void notifyLoan(Loan loan, String message) {
+        if (loan == null) {
+            throw new IllegalArgumentException("El préstamo no puede ser null");
+        }
+        if (cerrado) {
+            throw new IllegalStateException("El notificador está cerrado");
+        }
+        recibidos.incrementAndGet();
+        String prestatario = loan.getBorrowerName();
+        String titulo = loan.getBook().getTitle();
+
+        while (true) {
+            Grupo grupo = grupos.get(prestatario);
+            if (grupo == null) {
+                if (!reservarHueco()) {
+                    sinAgrupar.incrementAndGet();
+                    enviar(textoIndividual(titulo, prestatario, message));
+                    return;
+                }
+                Grupo nuevo = new Grupo(prestatario, System.nanoTime());
+                grupo = grupos.putIfAbsent(prestatario, nuevo);
+                if (grupo == null) {
+                    grupo = nuevo;
+                } else {
+                    // Otro hilo metió antes el grupo de este prestatario; se usa ese
+                    abiertos.decrementAndGet();
+                }
+            }
+
+            String resumen;
+            synchronized (grupo) {
+                if (grupo.retirado) {
+                    // Otro hilo lo acaba de enviar; se empieza un grupo nuevo
+                    continue;
+                }
+                grupo.add(titulo, message);
+                resumen = grupo.total < maxPorPrestatario ? null : retirar(grupo);
+            }
+            if (resumen != null && enviar(resumen)) {
+                resumenes.incrementAndGet();
+            }
+            if (cerrado) {
+                // close() pudo vaciar los grupos justo antes de que añadiéramos este préstamo
+                flush();
+            }
+            return;
+        }
+    }
+
+    @Override
+    public void sendNotification(String message) {
+        channel.notify(message);
+    }
+
+    /**
+     * Envía ya todos los grupos abiertos.
+     */
+    public void flush() {
+        for (Grupo grupo : grupos.values()) {
+            String resumen;
+            synchronized (grupo) {
+                if (grupo.retirado) {
+                    continue;
+                }
+                resumen = retirar(grupo);
+            }
+            if (enviar(resumen)) {
+                resumenes.incrementAndGet();
+            }
+        }
+    }
+
+    // Lo llama el hilo de fondo: envía los grupos cuya ventana ya ha pasado
+    private void enviarCaducados() {
+        long ahora = System.nanoTime();
+        for (Grupo grupo : grupos.values()) {
+            String resumen;
+            synchronized (grupo) {
+                if (grupo.retirado || ahora - grupo.inicio < ventanaNanos) {
+                    continue;
+                }
+                resumen = retirar(grupo);
+            }
+            if (enviar(resumen)) {
+                resumenes.incrementAndGet();
+            }
+        }
+    }
+
+    // Reserva el hueco de un grupo nuevo si aún no hay maxPrestatarios
+    private boolean reservarHueco() {
+        while (true) {
+            int actuales = abiertos.get();
+            if (actuales >= maxPrestatarios) {
+                return false;
+            }
+            if (abiertos.compareAndSet(actuales, actuales + 1)) {
+                return true;
+            }
+        }
+    }
+
+    // Con el lock del grupo: lo saca del mapa, libera su hueco y monta su resumen
+    private String retirar(Grupo grupo) {
+        grupo.retirado = true;
+        if (grupos.remove(grupo.prestatario, grupo)) {
+            abiertos.decrementAndGet();
+        }
+        return grupo.resumen();
+    }
+
+    // Un canal que falla pierde ese mensaje, pero no para los demás grupos ni llega a
+    // quien notificó un préstamo que ya estaba aceptado: se cuenta en getErrorCount()
+    private boolean enviar(String texto) {
+        try {
+            channel.notify(texto);
+            return true;
+        } catch (RuntimeException e) {
+            errores.incrementAndGet();
+            return false;
+        }
+    }
+
+    // Mismo texto que FullLoanService.notifyLoan
+    private static String textoIndividual(String titulo, String prestatario, String message) {
+        return "Préstamo de '" + titulo + "' a " + prestatario + ": " + message;
+    }
+
+    /**
+     * Deja de aceptar préstamos y envía todos los grupos pendientes.
+     */
+    @Override
+    public void close() {
+        cerrado = true;
+        if (vaciador != null) {
+            vaciador.shutdown();
+            try {
+                vaciador.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
+    }
+
+    public long getLoansReceived() {
+        return recibidos.get();
+    }
+
+    public long getSummariesSent() {
+        return resumenes.get();
+    }
+
+    /**
+     * Préstamos que se notificaron sin agrupar porque ya había maxPrestatarios grupos.
+     */
+    public long getUngroupedCount() {
+        return sinAgrupar.get();
+    }
+
+    /**
+     * Mensajes (resúmenes o préstamos sin agrupar) que no se pudieron enviar porque
+     * el canal lanzó una excepción.
+     */
+    public long getErrorCount() {
+        return errores.get();
+    }
+
+    public int getPendingBorrowers() {
+        return grupos.size();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CoalescingLoanNotifier[%s, recibidos=%d, resúmenes=%d, pendientes=%d]",
+                           channel.getChannelName(), recibidos.get(), resumenes.get(), grupos.size());
+    }
+
+    /**
+     * Préstamos de un prestatario pendientes de enviar. Se usa con su propio lock.
+     */
+    private static class Grupo {
+        final String prestatario;
+        final long inicio;
+        // Línea de detalle -> veces que se ha repetido, en orden de llegada
+        final Map<String, Integer> detalles = new LinkedHashMap<>();
+        String primerTitulo;
+        String primerMensaje;
+        int total;
+        int sinDetalle;
+        boolean retirado;
+
+        Grupo(String prestatario, long inicio) {
+            this.prestatario = prestatario;
+            this.inicio = inicio;
+        }
+
+        void add(String titulo, String message) {
+            if (total++ == 0) {
+                primerTitulo = titulo;
+                primerMensaje = message;
+            }
+            String detalle = "'" + titulo + "': " + message;
+            Integer veces = detalles.get(detalle);
+            if (veces != null) {
+                detalles.put(detalle, veces + 1);
+            } else if (detalles.size() < MAX_DETALLE) {
+                detalles.put(detalle, 1);
+            } else {
+                sinDetalle++;
+            }
+        }
+
+        String resumen() {
+            if (total == 1) {
+                return textoIndividual(primerTitulo, prestatario, primerMensaje);
+            }
+            StringBuilder sb = new StringBuilder(64 + 48 * detalles.size());
+            sb.append(total).append(" préstamos a ").append(prestatario).append(": ");
+            boolean primero = true;
+            for (Map.Entry<String, Integer> detalle : detalles.entrySet()) {
+                if (!primero) {
+                    sb.append("; ");
+                }
+                primero = false;
+                sb.append(detalle.getKey());
+                if (detalle.getValue() > 1) {
+                    sb.append(" (x").append(detalle.getValue()).append(')');
+                }
+            }
+            if (sinDetalle > 0) {
+                sb.append("; y ").append(sinDetalle).append(" más");
+            }
+            return sb.toString();
+        }
+    }
+}
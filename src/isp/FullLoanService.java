@@ -1,10 +1,13 @@
 package isp;
 
 import library.Loan;
+import library.Money;
+import metrics.LoanMetrics;
+import metrics.Stage;
+import notification.LoanEvent;
 import notification.NotificationChannel;
 import policy.LoanPolicy;
-import java.util.ArrayList;
-import java.util.List;
+import registry.ColumnarLoanRegistry;
 
 /**
  * Servicio completo que implementa las 3 interfaces.
@@ -14,26 +17,49 @@ import java.util.List;
  * 
  * La diferencia con una interfaz monolítica es que aquí ELEGIMOS implementar las tres,
  * mientras que SimpleCostService solo implementa una y no tiene métodos de más.
+ * 
+ * El registro lo delega en otro LoanRegistry (por defecto uno por columnas).
  */
 public class FullLoanService implements LoanCostCalculator, LoanNotifier, LoanRegistry {
     
     private final LoanPolicy policy;
     private final NotificationChannel channel;
-    private final List<Loan> prestamos;
-    private double ingresos;
+    private final LoanRegistry registro;
+    private final LoanMetrics metrics;
+    private final String nombreCanal;
     
     public FullLoanService(LoanPolicy policy, NotificationChannel channel) {
+        this(policy, channel, new ColumnarLoanRegistry());
+    }
+    
+    public FullLoanService(LoanPolicy policy, NotificationChannel channel, LoanRegistry registro) {
+        this(policy, channel, registro, LoanMetrics.NOOP);
+    }
+    
+    /**
+     * Con métricas: processLoanFully mide el cálculo, el registro y la notificación por separado.
+     */
+    public FullLoanService(LoanPolicy policy, NotificationChannel channel, LoanRegistry registro,
+                           LoanMetrics metrics) {
         if (policy == null) {
             throw new IllegalArgumentException("La política no puede ser null");
         }
         if (channel == null) {
             throw new IllegalArgumentException("El canal no puede ser null");
         }
+        if (registro == null) {
+            throw new IllegalArgumentException("El registro no puede ser null");
+        }
+        if (metrics == null) {
+            throw new IllegalArgumentException("Las métricas no pueden ser null");
+        }
         
         this.policy = policy;
         this.channel = channel;
-        this.prestamos = new ArrayList<>();
-        this.ingresos = 0.0;
+        this.registro = registro;
+        this.metrics = metrics;
+        this.nombreCanal = channel.getChannelName();
+        metrics.registerChannelGauges(channel);
     }
     
     // === LoanCostCalculator ===
@@ -46,14 +72,25 @@ public class FullLoanService implements LoanCostCalculator, LoanNotifier, LoanRe
         return policy.calculateCost(loan);
     }
     
+    @Override
+    public long calculateCostMillis(Loan loan) {
+        if (loan == null) {
+            throw new IllegalArgumentException("El préstamo no puede ser null");
+        }
+        return policy.calculateCostMillis(loan);
+    }
+    
+    @Override
+    public void calculateCosts(int[] daysLoaned, double[] costs) {
+        policy.calculateCosts(daysLoaned, costs);
+    }
+    
     // === LoanNotifier ===
     
     @Override
     public void notifyLoan(Loan loan, String message) {
-        String msg = String.format("Préstamo de '%s' a %s: %s",
-                loan.getBook().getTitle(),
-                loan.getBorrowerName(),
-                message);
+        String msg = "Préstamo de '" + loan.getBook().getTitle() + "' a "
+                + loan.getBorrowerName() + ": " + message;
         channel.notify(msg);
     }
     
@@ -69,17 +106,33 @@ public class FullLoanService implements LoanCostCalculator, LoanNotifier, LoanRe
         if (loan == null) {
             throw new IllegalArgumentException("El préstamo no puede ser null");
         }
-        prestamos.add(loan);
+        registro.registerLoan(loan);
+    }
+    
+    @Override
+    public void registerLoanWithCostMillis(Loan loan, long costeMillis) {
+        if (loan == null) {
+            throw new IllegalArgumentException("El préstamo no puede ser null");
+        }
+        registro.registerLoanWithCostMillis(loan, costeMillis);
+    }
+    
+    @Override
+    public void registerPricedLoan(Loan loan, long costeMillis, String policyName) {
+        if (loan == null) {
+            throw new IllegalArgumentException("El préstamo no puede ser null");
+        }
+        registro.registerPricedLoan(loan, costeMillis, policyName);
     }
     
     @Override
     public int getTotalLoansProcessed() {
-        return prestamos.size();
+        return registro.getTotalLoansProcessed();
     }
     
     @Override
-    public double getTotalRevenue() {
-        return ingresos;
+    public long getTotalRevenueMillis() {
+        return registro.getTotalRevenueMillis();
     }
     
     // === Método que usa todo ===
@@ -88,14 +141,45 @@ public class FullLoanService implements LoanCostCalculator, LoanNotifier, LoanRe
      * Procesa un préstamo completo: calcula, registra y notifica.
      */
     public double processLoanFully(Loan loan) {
-        double coste = calculateCost(loan);
-        registerLoan(loan);
-        ingresos += coste;
+        long inicio = metrics.startTimer();
         
-        String msg = String.format("Coste: %.2f€ (%s)", coste, policy.getPolicyName());
-        notifyLoan(loan, msg);
+        // Una política que enruta se resuelve una sola vez para el coste y el nombre
+        LoanPolicy aplicada;
+        long costeMillis;
+        try {
+            aplicada = policy.resolve(loan);
+            costeMillis = aplicada.calculateCostMillis(loan);
+        } catch (RuntimeException e) {
+            metrics.recordError(Stage.PRICING);
+            throw e;
+        }
+        long trasCalcular = metrics.recordStage(Stage.PRICING, inicio);
+        
+        try {
+            registerPricedLoan(loan, costeMillis, aplicada.getPolicyName());
+        } catch (RuntimeException e) {
+            metrics.recordError(Stage.REGISTRATION);
+            throw e;
+        }
+        long trasRegistrar = metrics.recordStage(Stage.REGISTRATION, trasCalcular);
         
-        return coste;
+        // Mismo texto que notifyLoan, pero el canal lo formatea solo si hace falta
+        try {
+            channel.notify(LoanEvent.charged(loan, costeMillis, aplicada.getPolicyName()));
+        } catch (RuntimeException e) {
+            metrics.recordError(Stage.NOTIFICATION);
+            throw e;
+        }
+        long fin = metrics.recordStage(Stage.NOTIFICATION, trasRegistrar);
+        
+        metrics.recordNanos(Stage.TOTAL, fin - inicio);
+        metrics.countPolicy(aplicada.getPolicyName());
+        metrics.countChannel(nombreCanal);
+        return Money.toEuros(costeMillis);
+    }
+    
+    public LoanMetrics getMetrics() {
+        return metrics;
     }
     
     @Override
@@ -10,4 +10,14 @@ import library.Loan;
  */
 public interface LoanCostCalculator {
     double calculateCost(Loan loan);
+    
+    /**
+     * El coste en milésimas de euro (ver library.Money).
+     */
+    long calculateCostMillis(Loan loan);
+    
+    /**
+     * Calcula una columna entera de costes a partir de los días de cada préstamo.
+     */
+    void calculateCosts(int[] daysLoaned, double[] costs);
 }
@@ -1,12 +1,42 @@
 package isp;
 
 import library.Loan;
+import library.Money;
 
 /**
  * Interfaz para registro y estadísticas de préstamos.
+ * 
+ * Los ingresos se llevan en milésimas de euro (ver Money) para que las sumas sean exactas;
+ * las versiones con double solo convierten.
  */
 public interface LoanRegistry {
     void registerLoan(Loan loan);
+    
+    /**
+     * Registra el préstamo sumando su coste (en milésimas de euro) a los ingresos.
+     */
+    void registerLoanWithCostMillis(Loan loan, long costeMillis);
+    
+    /**
+     * Registra el préstamo sumando su coste a los ingresos.
+     */
+    default void registerLoanWithCost(Loan loan, double coste) {
+        registerLoanWithCostMillis(loan, Money.fromEuros(coste));
+    }
+    
+    /**
+     * Registra un préstamo ya cobrado indicando también la política que se aplicó.
+     * Los registros que no distinguen por política lo tratan como registerLoanWithCostMillis.
+     */
+    default void registerPricedLoan(Loan loan, long costeMillis, String policyName) {
+        registerLoanWithCostMillis(loan, costeMillis);
+    }
+    
     int getTotalLoansProcessed();
-    double getTotalRevenue();
+    
+    long getTotalRevenueMillis();
+    
+    default double getTotalRevenue() {
+        return Money.toEuros(getTotalRevenueMillis());
+    }
 }
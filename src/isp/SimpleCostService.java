@@ -29,6 +29,19 @@ public class SimpleCostService implements LoanCostCalculator {
         return policy.calculateCost(loan);
     }
     
+    @Override
+    public long calculateCostMillis(Loan loan) {
+        if (loan == null) {
+            throw new IllegalArgumentException("El préstamo no puede ser null");
+        }
+        return policy.calculateCostMillis(loan);
+    }
+    
+    @Override
+    public void calculateCosts(int[] daysLoaned, double[] costs) {
+        policy.calculateCosts(daysLoaned, costs);
+    }
+    
     @Override
     public String toString() {
         return "SimpleCostService con " + policy.getPolicyName();
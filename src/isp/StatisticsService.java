@@ -1,48 +1,77 @@
 package isp;
 
+import audit.LoanAuditSink;
 import library.Loan;
-import java.util.ArrayList;
-import java.util.List;
+import registry.ColumnarLoanRegistry;
 
 /**
  * Servicio que SOLO lleva estadísticas.
  * 
  * Solo implementa LoanRegistry. No necesita calcular costes ni enviar notificaciones.
  * Gracias a ISP, no tenemos métodos vacíos ni excepciones tipo "no soportado".
+ * 
+ * Los préstamos se guardan en un LoanRegistry interno (por defecto uno por columnas),
+ * así se puede cambiar el almacenamiento sin tocar esta clase.
+ * 
+ * Por defecto no escribe nada al registrar. Para auditar los registros se le pasa un
+ * LoanAuditSink (por ejemplo audit.AsyncLoanAuditSink, que escribe en segundo plano).
  */
 public class StatisticsService implements LoanRegistry {
     
-    private final List<Loan> prestamosRegistrados;
-    private double ingresosTotales;
+    private final LoanRegistry registro;
+    private final LoanAuditSink auditoria;
     
     public StatisticsService() {
-        this.prestamosRegistrados = new ArrayList<>();
-        this.ingresosTotales = 0.0;
+        this(new ColumnarLoanRegistry());
+    }
+    
+    public StatisticsService(LoanRegistry registro) {
+        this(registro, LoanAuditSink.NONE);
+    }
+    
+    public StatisticsService(LoanRegistry registro, LoanAuditSink auditoria) {
+        if (registro == null) {
+            throw new IllegalArgumentException("El registro no puede ser null");
+        }
+        if (auditoria == null) {
+            throw new IllegalArgumentException("La auditoría no puede ser null");
+        }
+        this.registro = registro;
+        this.auditoria = auditoria;
     }
     
     @Override
     public void registerLoan(Loan loan) {
+        registerLoanWithCostMillis(loan, 0);
+    }
+    
+    // Registrar con coste (útil para estadísticas)
+    @Override
+    public void registerLoanWithCostMillis(Loan loan, long costeMillis) {
         if (loan == null) {
             throw new IllegalArgumentException("El préstamo no puede ser null");
         }
-        prestamosRegistrados.add(loan);
-        System.out.println("[REGISTRO] Préstamo añadido: " + loan);
+        registro.registerLoanWithCostMillis(loan, costeMillis);
+        auditoria.recordRegistration(loan, costeMillis, null);
     }
     
-    // Método extra para registrar con coste (útil para estadísticas)
-    public void registerLoanWithCost(Loan loan, double coste) {
-        registerLoan(loan);
-        this.ingresosTotales += coste;
+    @Override
+    public void registerPricedLoan(Loan loan, long costeMillis, String policyName) {
+        if (loan == null) {
+            throw new IllegalArgumentException("El préstamo no puede ser null");
+        }
+        registro.registerPricedLoan(loan, costeMillis, policyName);
+        auditoria.recordRegistration(loan, costeMillis, policyName);
     }
     
     @Override
     public int getTotalLoansProcessed() {
-        return prestamosRegistrados.size();
+        return registro.getTotalLoansProcessed();
     }
     
     @Override
-    public double getTotalRevenue() {
-        return ingresosTotales;
+    public long getTotalRevenueMillis() {
+        return registro.getTotalRevenueMillis();
     }
     
     public void printStatistics() {
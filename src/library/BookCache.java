@@ -0,0 +1,200 @@
+package library;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Caché de libros por ISBN: devuelve siempre la misma instancia para el mismo ISBN.
+ *
+ * Como Book es inmutable y su igualdad va por ISBN, no hace falta un objeto nuevo
+ * por cada préstamo de un libro popular. Solo se crea (y se valida) el Book la
+ * primera vez; las siguientes veces se devuelve el que ya había. Si llega otro título
+ * o autor con un ISBN conocido, se devuelve el libro guardado.
+ *
+ * Está acotada: al pasar de la capacidad se expulsan libros según la EvictionPolicy.
+ * Se puede usar desde varios hilos a la vez.
+ */
+public class BookCache {
+
+    /**
+     * Qué libro se expulsa cuando la caché está llena.
+     */
+    public enum EvictionPolicy {
+        /** El más antiguo en entrar. */
+        FIFO,
+        /** El más antiguo, salvo que se haya usado desde la última vuelta (aproxima LRU). */
+        SECOND_CHANCE
+    }
+
+    private final int capacidad;
+    private final EvictionPolicy politica;
+    private final ConcurrentHashMap<String, Entrada> libros;
+    private final Queue<String> ordenLlegada;
+    private final LongAdder aciertos;
+    private final LongAdder fallos;
+    private final LongAdder expulsiones;
+
+    public BookCache(int capacidad) {
+        this(capacidad, EvictionPolicy.SECOND_CHANCE);
+    }
+
+    public BookCache(int capacidad, EvictionPolicy politica) {
+        if (capacidad <= 0) {
+            throw new IllegalArgumentException("La capacidad debe ser mayor que 0");
+        }
+        if (politica == null) {
+            throw new IllegalArgumentException("La política de expulsión no puede ser null");
+        }
+
+        this.capacidad = capacidad;
+        this.politica = politica;
+        this.libros = new ConcurrentHashMap<>();
+        this.ordenLlegada = new ConcurrentLinkedQueue<>();
+        this.aciertos = new LongAdder();
+        this.fallos = new LongAdder();
+        this.expulsiones = new LongAdder();
+    }
+
+    /**
+     * Devuelve el libro con ese ISBN, creándolo con estos datos si no estaba.
+     */
+    public Book get(String title, String author, String isbn) {
+        Book existente = buscar(isbn);
+        if (existente != null) {
+            return existente;
+        }
+        return guardar(new Book(title, author, isbn));
+    }
+
+    /**
+     * Devuelve el libro con ese ISBN o lo crea con la función si no estaba.
+     * Útil cuando sacar el título y el autor cuesta algo y solo queremos hacerlo en un fallo.
+     * La función recibe el ISBN sin espacios y debe devolver un libro con ese ISBN.
+     */
+    public Book computeIfAbsent(String isbn, Function<String, Book> creador) {
+        if (creador == null) {
+            throw new IllegalArgumentException("La función creadora no puede ser null");
+        }
+        Book existente = buscar(isbn);
+        if (existente != null) {
+            return existente;
+        }
+
+        String clave = isbn.trim();
+        Book nuevo = creador.apply(clave);
+        if (nuevo == null || !nuevo.getIsbn().equals(clave)) {
+            throw new IllegalArgumentException("La función creadora debe devolver un libro con ISBN " + clave);
+        }
+        return guardar(nuevo);
+    }
+
+    /**
+     * Devuelve la instancia canónica de este libro (la que ya estaba o él mismo).
+     */
+    public Book intern(Book libro) {
+        if (libro == null) {
+            throw new IllegalArgumentException("El libro no puede ser null");
+        }
+        Book existente = buscar(libro.getIsbn());
+        if (existente != null) {
+            return existente;
+        }
+        return guardar(libro);
+    }
+
+    // Cuenta acierto o fallo; devuelve null en un fallo
+    private Book buscar(String isbn) {
+        if (isbn == null || isbn.trim().isEmpty()) {
+            throw new IllegalArgumentException("El ISBN no puede estar vacío");
+        }
+        Entrada entrada = libros.get(isbn.trim());
+        if (entrada == null) {
+            fallos.increment();
+            return null;
+        }
+        aciertos.increment();
+        entrada.usado = true;
+        return entrada.libro;
+    }
+
+    private Book guardar(Book libro) {
+        Entrada previa = libros.putIfAbsent(libro.getIsbn(), new Entrada(libro));
+        if (previa != null) {
+            // Otro hilo lo guardó a la vez que nosotros
+            return previa.libro;
+        }
+        ordenLlegada.add(libro.getIsbn());
+        expulsarSobrantes();
+        return libro;
+    }
+
+    private void expulsarSobrantes() {
+        while (libros.size() > capacidad) {
+            String isbn = ordenLlegada.poll();
+            if (isbn == null) {
+                return;
+            }
+            Entrada entrada = libros.get(isbn);
+            if (entrada == null) {
+                continue;
+            }
+            if (politica == EvictionPolicy.SECOND_CHANCE && entrada.usado) {
+                entrada.usado = false;
+                ordenLlegada.add(isbn);
+                continue;
+            }
+            if (libros.remove(isbn, entrada)) {
+                expulsiones.increment();
+            }
+        }
+    }
+
+    public int size() {
+        return libros.size();
+    }
+
+    public int getCapacity() {
+        return capacidad;
+    }
+
+    public long getHits() {
+        return aciertos.sum();
+    }
+
+    public long getMisses() {
+        return fallos.sum();
+    }
+
+    public long getEvictions() {
+        return expulsiones.sum();
+    }
+
+    public double getHitRate() {
+        long a = aciertos.sum();
+        long total = a + fallos.sum();
+        return total == 0 ? 0.0 : (double) a / total;
+    }
+
+    public void clear() {
+        libros.clear();
+        ordenLlegada.clear();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("BookCache[libros=%d/%d, aciertos=%d, fallos=%d, expulsiones=%d]",
+                           size(), capacidad, getHits(), getMisses(), getEvictions());
+    }
+
+    private static class Entrada {
+        final Book libro;
+        volatile boolean usado;
+
+        Entrada(Book libro) {
+            this.libro = libro;
+        }
+    }
+}
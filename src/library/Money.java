@@ -0,0 +1,61 @@
+package library;
+
+/**
+ * Importes en coma fija: un long con milésimas de euro (1€ = 1000).
+ * 
+ * Con double, sumar millones de costes como 0.75 * 0.9 va acumulando error y los
+ * ingresos no cuadran. Con milésimas todos los costes de las políticas son enteros
+ * exactos (Premium con descuento son 675 milésimas/día) y las sumas también.
+ * No es una clase con instancias para no crear objetos: son métodos estáticos sobre long.
+ * Las operaciones lanzan ArithmeticException si se desbordan, igual que Math.addExact.
+ */
+public final class Money {
+    
+    public static final long MILLIS_PER_EURO = 1000;
+    
+    private Money() {
+    }
+    
+    /**
+     * Convierte euros a milésimas, redondeando a la milésima más cercana.
+     */
+    public static long fromEuros(double euros) {
+        if (Double.isNaN(euros) || Double.isInfinite(euros)) {
+            throw new IllegalArgumentException("El importe no es un número válido: " + euros);
+        }
+        double millis = euros * MILLIS_PER_EURO;
+        if (Math.abs(millis) >= Long.MAX_VALUE) {
+            throw new ArithmeticException("El importe no cabe en un long: " + euros);
+        }
+        return Math.round(millis);
+    }
+    
+    public static double toEuros(long millis) {
+        return millis / (double) MILLIS_PER_EURO;
+    }
+    
+    public static long add(long a, long b) {
+        return Math.addExact(a, b);
+    }
+    
+    public static long times(long millis, long cantidad) {
+        return Math.multiplyExact(millis, cantidad);
+    }
+    
+    /**
+     * millis * numerador / denominador, redondeando la mitad hacia arriba (en valor absoluto).
+     * Sirve para porcentajes: scale(coste, 90, 100) es el coste con un 10% de descuento.
+     */
+    public static long scale(long millis, long numerador, long denominador) {
+        if (denominador <= 0) {
+            throw new IllegalArgumentException("El denominador debe ser mayor que 0");
+        }
+        long producto = Math.multiplyExact(millis, numerador);
+        long cociente = producto / denominador;
+        long resto = producto % denominador;
+        if (Math.abs(resto) * 2 >= denominador) {
+            cociente += Long.signum(producto);
+        }
+        return cociente;
+    }
+}
@@ -0,0 +1,136 @@
+package metrics;
+
+import registry.LogLinearHistogram;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Métricas guardadas en memoria del propio proceso.
+ * 
+ * Cada fase tiene su LogLinearHistogram de latencias (en nanosegundos) y su contador
+ * de errores; las políticas y los canales, un LongAdder por nombre. Todo se puede
+ * registrar desde varios hilos sin locks. Para verlas desde fuera, JmxMetricsExporter.
+ */
+public class InMemoryLoanMetrics implements LoanMetrics {
+    
+    private final LogLinearHistogram[] latencias;
+    private final LongAdder[] errores;
+    private final ConcurrentHashMap<String, LongAdder> porPolitica;
+    private final ConcurrentHashMap<String, LongAdder> porCanal;
+    private final ConcurrentHashMap<String, LongSupplier> indicadores;
+    
+    public InMemoryLoanMetrics() {
+        int fases = Stage.values().length;
+        this.latencias = new LogLinearHistogram[fases];
+        this.errores = new LongAdder[fases];
+        for (int i = 0; i < fases; i++) {
+            latencias[i] = new LogLinearHistogram();
+            errores[i] = new LongAdder();
+        }
+        this.porPolitica = new ConcurrentHashMap<>();
+        this.porCanal = new ConcurrentHashMap<>();
+        this.indicadores = new ConcurrentHashMap<>();
+    }
+    
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+    
+    @Override
+    public long startTimer() {
+        return System.nanoTime();
+    }
+    
+    @Override
+    public long recordStage(Stage fase, long inicio) {
+        long ahora = System.nanoTime();
+        recordNanos(fase, ahora - inicio);
+        return ahora;
+    }
+    
+    @Override
+    public void recordNanos(Stage fase, long nanos) {
+        // nanoTime no retrocede, pero por si acaso no metemos negativos en el histograma
+        latencias[fase.ordinal()].record(Math.max(0, nanos));
+    }
+    
+    @Override
+    public void countPolicy(String policyName) {
+        contar(porPolitica, policyName);
+    }
+    
+    @Override
+    public void countChannel(String channelName) {
+        contar(porCanal, channelName);
+    }
+    
+    private static void contar(ConcurrentHashMap<String, LongAdder> contadores, String nombre) {
+        LongAdder contador = contadores.get(nombre);
+        if (contador == null) {
+            contador = contadores.computeIfAbsent(nombre, k -> new LongAdder());
+        }
+        contador.increment();
+    }
+    
+    @Override
+    public void recordError(Stage fase) {
+        errores[fase.ordinal()].increment();
+    }
+    
+    @Override
+    public void registerGauge(String nombre, LongSupplier valor) {
+        if (nombre == null || valor == null) {
+            throw new IllegalArgumentException("El nombre y el valor no pueden ser null");
+        }
+        indicadores.put(nombre, valor);
+    }
+    
+    public LogLinearHistogram getStageLatency(Stage fase) {
+        return latencias[fase.ordinal()];
+    }
+    
+    public long getErrorCount(Stage fase) {
+        return errores[fase.ordinal()].sum();
+    }
+    
+    public Map<String, Long> getCountsByPolicy() {
+        return copiar(porPolitica);
+    }
+    
+    public Map<String, Long> getCountsByChannel() {
+        return copiar(porCanal);
+    }
+    
+    public Map<String, Long> getGauges() {
+        Map<String, Long> valores = new TreeMap<>();
+        for (Map.Entry<String, LongSupplier> e : indicadores.entrySet()) {
+            valores.put(e.getKey(), e.getValue().getAsLong());
+        }
+        return valores;
+    }
+    
+    private static Map<String, Long> copiar(ConcurrentHashMap<String, LongAdder> contadores) {
+        Map<String, Long> copia = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> e : contadores.entrySet()) {
+            copia.put(e.getKey(), e.getValue().sum());
+        }
+        return copia;
+    }
+    
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("InMemoryLoanMetrics[");
+        for (Stage fase : Stage.values()) {
+            LogLinearHistogram h = getStageLatency(fase);
+            sb.append(String.format("%n  %-12s n=%d p50=%dns p99=%dns errores=%d",
+                    fase, h.getCount(), h.getPercentile(50), h.getPercentile(99), getErrorCount(fase)));
+        }
+        sb.append(String.format("%n  políticas=%s canales=%s indicadores=%s%n]",
+                getCountsByPolicy(), getCountsByChannel(), getGauges()));
+        return sb.toString();
+    }
+}
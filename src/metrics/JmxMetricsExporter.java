@@ -0,0 +1,116 @@
+package metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Publica unas InMemoryLoanMetrics como MXBean, para verlas con jconsole o VisualVM.
+ * 
+ * No copia nada al registrar: los valores se calculan cuando alguien los consulta,
+ * así que exportar no añade coste a los servicios.
+ */
+public class JmxMetricsExporter implements LoanMetricsMXBean, AutoCloseable {
+    
+    private final InMemoryLoanMetrics metricas;
+    private final ObjectName nombre;
+    private final MBeanServer servidor;
+    
+    /**
+     * Registra las métricas como "practica1:type=LoanMetrics,name=" + nombre.
+     */
+    public JmxMetricsExporter(InMemoryLoanMetrics metricas, String nombre) {
+        if (metricas == null) {
+            throw new IllegalArgumentException("Las métricas no pueden ser null");
+        }
+        if (nombre == null || nombre.trim().isEmpty()) {
+            throw new IllegalArgumentException("El nombre no puede estar vacío");
+        }
+        
+        this.metricas = metricas;
+        this.servidor = ManagementFactory.getPlatformMBeanServer();
+        try {
+            this.nombre = new ObjectName("practica1:type=LoanMetrics,name=" + ObjectName.quote(nombre));
+            servidor.registerMBean(this, this.nombre);
+        } catch (JMException e) {
+            throw new IllegalStateException("No se pudieron registrar las métricas en JMX", e);
+        }
+    }
+    
+    @Override
+    public long getLoansProcessed() {
+        return metricas.getStageLatency(Stage.TOTAL).getCount();
+    }
+    
+    @Override
+    public Map<String, Long> getLatencyP50Nanos() {
+        return porFase(50);
+    }
+    
+    @Override
+    public Map<String, Long> getLatencyP99Nanos() {
+        return porFase(99);
+    }
+    
+    @Override
+    public Map<String, Long> getLatencyMaxNanos() {
+        Map<String, Long> valores = new TreeMap<>();
+        for (Stage fase : Stage.values()) {
+            valores.put(fase.name(), metricas.getStageLatency(fase).getMax());
+        }
+        return valores;
+    }
+    
+    private Map<String, Long> porFase(double percentil) {
+        Map<String, Long> valores = new TreeMap<>();
+        for (Stage fase : Stage.values()) {
+            valores.put(fase.name(), metricas.getStageLatency(fase).getPercentile(percentil));
+        }
+        return valores;
+    }
+    
+    @Override
+    public Map<String, Long> getErrorCounts() {
+        Map<String, Long> valores = new TreeMap<>();
+        for (Stage fase : Stage.values()) {
+            valores.put(fase.name(), metricas.getErrorCount(fase));
+        }
+        return valores;
+    }
+    
+    @Override
+    public Map<String, Long> getCountsByPolicy() {
+        return metricas.getCountsByPolicy();
+    }
+    
+    @Override
+    public Map<String, Long> getCountsByChannel() {
+        return metricas.getCountsByChannel();
+    }
+    
+    @Override
+    public Map<String, Long> getGauges() {
+        return metricas.getGauges();
+    }
+    
+    public ObjectName getObjectName() {
+        return nombre;
+    }
+    
+    /**
+     * Quita el MXBean del servidor JMX.
+     */
+    @Override
+    public void close() {
+        try {
+            if (servidor.isRegistered(nombre)) {
+                servidor.unregisterMBean(nombre);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("No se pudieron quitar las métricas de JMX", e);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package metrics;
+
+import notification.GaugeSource;
+import notification.NotificationChannel;
+import java.util.function.LongSupplier;
+
+/**
+ * Dónde mandan los servicios sus medidas: latencia por fase, préstamos por política
+ * y por canal, errores y valores que se consultan al leer (como la cola de un canal).
+ * 
+ * Los tiempos van en nanosegundos. startTimer() da el instante de inicio y cada
+ * recordStage() registra lo que ha pasado desde él y devuelve el instante actual,
+ * que sirve de inicio para la fase siguiente; así se lee el reloj una vez por fase.
+ * 
+ * NOOP no hace nada y no lee el reloj: es lo que usan los servicios si no se les
+ * pasa otra cosa, y al ser una sola clase el JIT deja las llamadas en nada.
+ */
+public interface LoanMetrics {
+    
+    LoanMetrics NOOP = new NoopLoanMetrics();
+    
+    boolean isEnabled();
+    
+    long startTimer();
+    
+    /**
+     * Registra la duración de la fase desde inicio y devuelve el instante actual.
+     */
+    long recordStage(Stage fase, long inicio);
+    
+    /**
+     * Registra una duración ya medida (por ejemplo TOTAL, con el instante que devolvió la última fase).
+     */
+    void recordNanos(Stage fase, long nanos);
+    
+    void countPolicy(String policyName);
+    
+    void countChannel(String channelName);
+    
+    void recordError(Stage fase);
+    
+    /**
+     * Un valor que se lee al consultar las métricas (profundidad de una cola, descartes...).
+     */
+    void registerGauge(String nombre, LongSupplier valor);
+    
+    /**
+     * Si el canal tiene indicadores (ver GaugeSource), los registra todos; por ejemplo la
+     * cola de un canal asíncrono o los de cada destino de uno de difusión.
+     * Los servicios lo llaman con su canal al crearse.
+     */
+    default void registerChannelGauges(NotificationChannel canal) {
+        if (isEnabled() && canal instanceof GaugeSource) {
+            ((GaugeSource) canal).registerGauges(this::registerGauge);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package metrics;
+
+import java.util.Map;
+
+/**
+ * Vista JMX de unas InMemoryLoanMetrics (ver JmxMetricsExporter).
+ * Las latencias van en nanosegundos.
+ */
+public interface LoanMetricsMXBean {
+    
+    long getLoansProcessed();
+    
+    Map<String, Long> getLatencyP50Nanos();
+    
+    Map<String, Long> getLatencyP99Nanos();
+    
+    Map<String, Long> getLatencyMaxNanos();
+    
+    Map<String, Long> getErrorCounts();
+    
+    Map<String, Long> getCountsByPolicy();
+    
+    Map<String, Long> getCountsByChannel();
+    
+    Map<String, Long> getGauges();
+}
@@ -0,0 +1,49 @@
+package metrics;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Métricas desactivadas: todo vacío, sin leer el reloj ni reservar memoria.
+ */
+final class NoopLoanMetrics implements LoanMetrics {
+    
+    @Override
+    public boolean isEnabled() {
+        return false;
+    }
+    
+    @Override
+    public long startTimer() {
+        return 0;
+    }
+    
+    @Override
+    public long recordStage(Stage fase, long inicio) {
+        return 0;
+    }
+    
+    @Override
+    public void recordNanos(Stage fase, long nanos) {
+    }
+    
+    @Override
+    public void countPolicy(String policyName) {
+    }
+    
+    @Override
+    public void countChannel(String channelName) {
+    }
+    
+    @Override
+    public void recordError(Stage fase) {
+    }
+    
+    @Override
+    public void registerGauge(String nombre, LongSupplier valor) {
+    }
+    
+    @Override
+    public String toString() {
+        return "Métricas desactivadas";
+    }
+}
@@ -0,0 +1,15 @@
+package metrics;
+
+/**
+ * Fases en las que se mide el procesado de un préstamo.
+ */
+public enum Stage {
+    /** Resolver la política y calcular el coste. */
+    PRICING,
+    /** Entregar el evento al canal (incluye formatear el mensaje si el canal lo hace al momento). */
+    NOTIFICATION,
+    /** Guardar el préstamo en el LoanRegistry. */
+    REGISTRATION,
+    /** El procesado entero. */
+    TOTAL
+}
@@ -0,0 +1,303 @@
+package notification;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Decorador que envía las notificaciones en segundo plano.
+ *
+ * notify() solo deja el mensaje en una cola acotada (un buffer circular) y vuelve,
+ * así la E/S del canal real no se suma a la latencia de procesar el préstamo.
+ * Un hilo aparte vacía la cola por lotes: entrega cuando junta tamanoLote mensajes
+ * o cuando pasa intervaloFlushMillis desde el primero del lote.
+ *
+ * Los LoanEvent se encolan tal cual y se formatean en el hilo de fondo.
+ * Qué pasa cuando la cola está llena lo decide la BackpressurePolicy.
+ * Al cerrar con close() se entregan todos los mensajes pendientes antes de parar.
+ */
+public class AsyncNotificationChannel implements NotificationChannel, GaugeSource, AutoCloseable {
+
+    /**
+     * Qué hacer cuando la cola está llena.
+     */
+    public enum BackpressurePolicy {
+        /** Espera a que haya hueco. */
+        BLOCK,
+        /** Descarta el mensaje más antiguo de la cola para hacer sitio. */
+        DROP_OLDEST,
+        /** Lo entrega el propio hilo que llama (se pierde el orden respecto a la cola). */
+        CALLER_RUNS
+    }
+
+    private static final int CAPACIDAD_POR_DEFECTO = 1024;
+    private static final int LOTE_POR_DEFECTO = 64;
+    private static final long INTERVALO_POR_DEFECTO = 10;
+
+    private final NotificationChannel destino;
+    private final BlockingQueue<Object> cola;
+    private final int tamanoLote;
+    private final long intervaloFlushNanos;
+    private final BackpressurePolicy politica;
+    private final Thread worker;
+
+    private final AtomicInteger llamadasEnCurso;
+    private final AtomicLong aceptados;
+    private final AtomicLong procesados;
+    private final AtomicLong descartados;
+    private final AtomicLong errores;
+    private final Object monitorFlush;
+    private volatile boolean cerrado;
+    private volatile boolean terminando;
+
+    public AsyncNotificationChannel(NotificationChannel destino) {
+        this(destino, CAPACIDAD_POR_DEFECTO, LOTE_POR_DEFECTO, INTERVALO_POR_DEFECTO,
+             BackpressurePolicy.BLOCK);
+    }
+
+    public AsyncNotificationChannel(NotificationChannel destino, int capacidad, int tamanoLote,
+                                    long intervaloFlushMillis, BackpressurePolicy politica) {
+        if (destino == null) {
+            throw new IllegalArgumentException("El canal destino no puede ser null");
+        }
+        if (capacidad <= 0) {
+            throw new IllegalArgumentException("La capacidad debe ser mayor que 0");
+        }
+        if (tamanoLote <= 0) {
+            throw new IllegalArgumentException("El tamaño de lote debe ser mayor que 0");
+        }
+        if (intervaloFlushMillis <= 0) {
+            // Con 0 el hilo de fondo no esperaría nunca en la cola y se quedaría dando vueltas
+            throw new IllegalArgumentException("El intervalo de flush debe ser mayor que 0");
+        }
+        if (politica == null) {
+            throw new IllegalArgumentException("La política de contrapresión no puede ser null");
+        }
+
+        this.destino = destino;
+        this.cola = new ArrayBlockingQueue<>(capacidad);
+        this.tamanoLote = tamanoLote;
+        this.intervaloFlushNanos = TimeUnit.MILLISECONDS.toNanos(intervaloFlushMillis);
+        this.politica = politica;
+        this.llamadasEnCurso = new AtomicInteger();
+        this.aceptados = new AtomicLong();
+        this.procesados = new AtomicLong();
+        this.descartados = new AtomicLong();
+        this.errores = new AtomicLong();
+        this.monitorFlush = new Object();
+        this.cerrado = false;
+        this.terminando = false;
+
+        this.worker = new Thread(this::vaciarCola, "notificaciones-" + destino.getChannelName());
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    @Override
+    public void notify(String message) {
+        aceptar(message);
+    }
+
+    @Override
+    public void notify(LoanEvent event) {
+        if (event == null) {
+            notify((String) null);
+            return;
+        }
+        aceptar(event);
+    }
+
+    // Los mensajes son String o LoanEvent; la cola no admite null
+    private void aceptar(Object message) {
+        if (message == null) {
+            message = "";
+        }
+        llamadasEnCurso.incrementAndGet();
+        try {
+            if (cerrado) {
+                throw new IllegalStateException("El canal asíncrono está cerrado");
+            }
+            encolar(message);
+        } finally {
+            llamadasEnCurso.decrementAndGet();
+        }
+    }
+
+    private void encolar(Object message) {
+        switch (politica) {
+            case BLOCK:
+                try {
+                    cola.put(message);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrumpido esperando hueco en la cola", e);
+                }
+                aceptados.incrementAndGet();
+                break;
+            case DROP_OLDEST:
+                aceptados.incrementAndGet();
+                while (!cola.offer(message)) {
+                    if (cola.poll() != null) {
+                        descartados.incrementAndGet();
+                        procesados.incrementAndGet();
+                    }
+                }
+                break;
+            case CALLER_RUNS:
+                if (cola.offer(message)) {
+                    aceptados.incrementAndGet();
+                } else {
+                    entregar(message);
+                }
+                break;
+            default:
+                throw new IllegalStateException("Política desconocida: " + politica);
+        }
+    }
+
+    // Bucle del hilo de fondo: junta un lote y lo entrega
+    private void vaciarCola() {
+        List<Object> lote = new ArrayList<>(tamanoLote);
+        while (true) {
+            try {
+                Object primero = cola.poll(intervaloFlushNanos, TimeUnit.NANOSECONDS);
+                if (primero == null) {
+                    if (terminando && cola.isEmpty()) {
+                        return;
+                    }
+                    continue;
+                }
+                lote.add(primero);
+                juntarLote(lote);
+            } catch (InterruptedException e) {
+                // Si alguien interrumpe el hilo, entregamos lo que quede y salimos
+                cola.drainTo(lote);
+                entregarLote(lote);
+                return;
+            }
+            entregarLote(lote);
+        }
+    }
+
+    // Sigue llenando el lote hasta que esté completo o venza el intervalo
+    private void juntarLote(List<Object> lote) throws InterruptedException {
+        long limite = System.nanoTime() + intervaloFlushNanos;
+        cola.drainTo(lote, tamanoLote - lote.size());
+        while (lote.size() < tamanoLote && !cerrado) {
+            long restante = limite - System.nanoTime();
+            if (restante <= 0) {
+                return;
+            }
+            Object siguiente = cola.poll(restante, TimeUnit.NANOSECONDS);
+            if (siguiente == null) {
+                return;
+            }
+            lote.add(siguiente);
+            cola.drainTo(lote, tamanoLote - lote.size());
+        }
+    }
+
+    private void entregarLote(List<Object> lote) {
+        for (Object mensaje : lote) {
+            entregar(mensaje);
+        }
+        procesados.addAndGet(lote.size());
+        lote.clear();
+        synchronized (monitorFlush) {
+            monitorFlush.notifyAll();
+        }
+    }
+
+    // Un canal que falla no debe tumbar el hilo de fondo
+    private void entregar(Object mensaje) {
+        try {
+            if (mensaje instanceof LoanEvent) {
+                destino.notify((LoanEvent) mensaje);
+            } else {
+                destino.notify((String) mensaje);
+            }
+        } catch (RuntimeException e) {
+            errores.incrementAndGet();
+        }
+    }
+
+    /**
+     * Espera a que se hayan entregado (o descartado) todos los mensajes aceptados hasta ahora.
+     */
+    public void flush() throws InterruptedException {
+        long objetivo = aceptados.get();
+        synchronized (monitorFlush) {
+            while (procesados.get() < objetivo && worker.isAlive()) {
+                monitorFlush.wait(TimeUnit.NANOSECONDS.toMillis(intervaloFlushNanos) + 1);
+            }
+        }
+    }
+
+    /**
+     * Deja de aceptar mensajes, entrega los pendientes y para el hilo de fondo.
+     */
+    @Override
+    public void close() {
+        cerrado = true;
+        // Las llamadas que ya pasaron la comprobación de cerrado terminan de encolar
+        while (llamadasEnCurso.get() > 0) {
+            Thread.yield();
+        }
+        terminando = true;
+
+        boolean interrumpido = false;
+        while (worker.isAlive()) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                interrumpido = true;
+            }
+        }
+        if (interrumpido) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getQueueDepth() {
+        return cola.size();
+    }
+
+    /**
+     * Profundidad de la cola, descartes y errores, con el nombre del canal delante.
+     */
+    @Override
+    public void registerGauges(BiConsumer<String, LongSupplier> registro) {
+        String prefijo = getChannelName() + ".";
+        registro.accept(prefijo + "cola", this::getQueueDepth);
+        registro.accept(prefijo + "descartados", this::getDroppedCount);
+        registro.accept(prefijo + "errores", this::getErrorCount);
+    }
+
+    public long getDroppedCount() {
+        return descartados.get();
+    }
+
+    public long getErrorCount() {
+        return errores.get();
+    }
+
+    public BackpressurePolicy getBackpressurePolicy() {
+        return politica;
+    }
+
+    @Override
+    public String getChannelName() {
+        return "Asíncrono(" + destino.getChannelName() + ")";
+    }
+
+    @Override
+    public String toString() {
+        return "Canal: " + getChannelName() + " [cola=" + cola.size() + ", política=" + politica + "]";
+    }
+}
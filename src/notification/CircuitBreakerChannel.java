@@ -0,0 +1,198 @@
+package notification;
+
+import registry.LogLinearHistogram;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decorador que deja de llamar a un canal que está fallando (circuit breaker)
+ * y mide cuánto tarda cada entrega.
+ *
+ * Una entrega cuenta como fallo si lanza una excepción o si tarda más que el timeout.
+ * Java no puede cortar una llamada a medias, así que el timeout no interrumpe al canal:
+ * solo hace que las entregas lentas cuenten como fallos. Tras fallosParaAbrir fallos
+ * seguidos el circuito se abre y los mensajes se rechazan sin llamar al canal durante
+ * aperturaMillis. Pasado ese tiempo se deja pasar uno de prueba: si va bien el circuito
+ * se cierra, y si falla se vuelve a abrir.
+ *
+ * Los fallos no se propagan: quedan en los contadores. Pensado para ir debajo de un
+ * AsyncNotificationChannel, que es quien llama desde un solo hilo.
+ */
+public class CircuitBreakerChannel implements NotificationChannel {
+
+    /**
+     * Estado del circuito.
+     */
+    public enum State {
+        /** Funcionando: se entregan los mensajes. */
+        CLOSED,
+        /** Demasiados fallos: se rechazan los mensajes sin llamar al canal. */
+        OPEN,
+        /** Se está probando si el canal se ha recuperado. */
+        HALF_OPEN
+    }
+
+    private final NotificationChannel destino;
+    private final long timeoutNanos;
+    private final int fallosParaAbrir;
+    private final long aperturaNanos;
+
+    private final AtomicInteger fallosSeguidos;
+    private final AtomicLong abiertoHasta;
+    private volatile State estado;
+
+    private final LongAdder entregados;
+    private final LongAdder fallidos;
+    private final LongAdder lentos;
+    private final LongAdder rechazados;
+    private final LogLinearHistogram latencia;
+
+    public CircuitBreakerChannel(NotificationChannel destino, long timeoutMillis,
+                                 int fallosParaAbrir, long aperturaMillis) {
+        if (destino == null) {
+            throw new IllegalArgumentException("El canal destino no puede ser null");
+        }
+        if (timeoutMillis <= 0) {
+            throw new IllegalArgumentException("El timeout debe ser mayor que 0");
+        }
+        if (fallosParaAbrir <= 0) {
+            throw new IllegalArgumentException("Los fallos para abrir deben ser mayor que 0");
+        }
+        if (aperturaMillis < 0) {
+            throw new IllegalArgumentException("El tiempo de apertura no puede ser negativo");
+        }
+
+        this.destino = destino;
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        this.fallosParaAbrir = fallosParaAbrir;
+        this.aperturaNanos = TimeUnit.MILLISECONDS.toNanos(aperturaMillis);
+        this.fallosSeguidos = new AtomicInteger();
+        this.abiertoHasta = new AtomicLong();
+        this.estado = State.CLOSED;
+        this.entregados = new LongAdder();
+        this.fallidos = new LongAdder();
+        this.lentos = new LongAdder();
+        this.rechazados = new LongAdder();
+        this.latencia = new LogLinearHistogram();
+    }
+
+    @Override
+    public void notify(String message) {
+        if (!permitir()) {
+            return;
+        }
+        long inicio = System.nanoTime();
+        try {
+            destino.notify(message);
+        } catch (RuntimeException e) {
+            terminar(inicio, true);
+            return;
+        }
+        terminar(inicio, false);
+    }
+
+    @Override
+    public void notify(LoanEvent event) {
+        if (!permitir()) {
+            return;
+        }
+        long inicio = System.nanoTime();
+        try {
+            destino.notify(event);
+        } catch (RuntimeException e) {
+            terminar(inicio, true);
+            return;
+        }
+        terminar(inicio, false);
+    }
+
+    // Decide si se llama al canal; con el circuito abierto solo pasa un mensaje de prueba al vencer
+    private boolean permitir() {
+        State actual = estado;
+        if (actual == State.CLOSED) {
+            return true;
+        }
+        long hasta = abiertoHasta.get();
+        if (actual == State.OPEN && System.nanoTime() - hasta >= 0
+                && abiertoHasta.compareAndSet(hasta, Long.MAX_VALUE)) {
+            estado = State.HALF_OPEN;
+            return true;
+        }
+        rechazados.increment();
+        return false;
+    }
+
+    private void terminar(long inicio, boolean excepcion) {
+        long duracion = System.nanoTime() - inicio;
+        latencia.record(Math.max(0, duracion));
+        boolean lento = duracion > timeoutNanos;
+        if (lento) {
+            lentos.increment();
+        }
+
+        if (excepcion || lento) {
+            fallidos.increment();
+            if (estado == State.HALF_OPEN || fallosSeguidos.incrementAndGet() >= fallosParaAbrir) {
+                abrir();
+            }
+        } else {
+            entregados.increment();
+            fallosSeguidos.set(0);
+            if (estado == State.HALF_OPEN) {
+                estado = State.CLOSED;
+            }
+        }
+    }
+
+    private void abrir() {
+        fallosSeguidos.set(0);
+        abiertoHasta.set(System.nanoTime() + aperturaNanos);
+        estado = State.OPEN;
+    }
+
+    public State getState() {
+        return estado;
+    }
+
+    public long getDeliveredCount() {
+        return entregados.sum();
+    }
+
+    /**
+     * Entregas que lanzaron excepción o pasaron del timeout.
+     */
+    public long getFailureCount() {
+        return fallidos.sum();
+    }
+
+    public long getTimeoutCount() {
+        return lentos.sum();
+    }
+
+    /**
+     * Mensajes que no se llegaron a entregar porque el circuito estaba abierto.
+     */
+    public long getRejectedCount() {
+        return rechazados.sum();
+    }
+
+    /**
+     * Duración de cada entrega, en nanosegundos.
+     */
+    public LogLinearHistogram getLatency() {
+        return latencia;
+    }
+
+    @Override
+    public String getChannelName() {
+        return destino.getChannelName();
+    }
+
+    @Override
+    public String toString() {
+        return "Canal: " + getChannelName() + " [circuito=" + estado + ", fallos=" + getFailureCount()
+                + ", rechazados=" + getRejectedCount() + "]";
+    }
+}
@@ -15,6 +15,17 @@ public class ConsoleNotification implements NotificationChannel {
         System.out.println("[NOTIFICACIÓN] " + message);
     }
     
+    // Prefijo y mensaje van al mismo StringBuilder, sin String intermedio
+    @Override
+    public void notify(LoanEvent event) {
+        if (event == null) {
+            notify((String) null);
+            return;
+        }
+        StringBuilder sb = new StringBuilder(160).append("[NOTIFICACIÓN] ");
+        System.out.println(event.appendTo(sb));
+    }
+    
     @Override
     public String getChannelName() {
         return "Consola";
@@ -0,0 +1,195 @@
+package notification;
+
+import registry.LogLinearHistogram;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Canal compuesto que manda cada mensaje a varios canales a la vez
+ * (consola, un fichero, una cola de mensajes...).
+ *
+ * Cada canal destino va aislado del resto: tiene su propio AsyncNotificationChannel
+ * (cola acotada e hilo propio, con DROP_OLDEST) y, debajo, un CircuitBreakerChannel con
+ * su timeout. Así un canal lento solo llena su cola y pierde sus mensajes más viejos,
+ * y uno que falla deja de llamarse un rato; ni los demás canales ni quien notifica
+ * esperan por él. Los LoanEvent se encolan tal cual y cada canal los formatea en su hilo.
+ *
+ * Las estadísticas de cada canal (cola, descartes, fallos, latencia) están en getSinks().
+ */
+public class FanOutNotificationChannel implements NotificationChannel, GaugeSource, AutoCloseable {
+
+    private static final int CAPACIDAD_POR_DEFECTO = 1024;
+    private static final int LOTE_POR_DEFECTO = 64;
+    private static final long INTERVALO_POR_DEFECTO = 10;
+    private static final long TIMEOUT_POR_DEFECTO = 100;
+    private static final int FALLOS_POR_DEFECTO = 5;
+    private static final long APERTURA_POR_DEFECTO = 5000;
+
+    private final List<Sink> sinks;
+
+    public FanOutNotificationChannel(List<NotificationChannel> destinos) {
+        this(destinos, CAPACIDAD_POR_DEFECTO, TIMEOUT_POR_DEFECTO, FALLOS_POR_DEFECTO, APERTURA_POR_DEFECTO);
+    }
+
+    /**
+     * capacidad es la cola de cada canal; timeoutMillis, fallosParaAbrir y aperturaMillis
+     * configuran el circuit breaker de cada uno (ver CircuitBreakerChannel).
+     */
+    public FanOutNotificationChannel(List<NotificationChannel> destinos, int capacidad, long timeoutMillis,
+                                     int fallosParaAbrir, long aperturaMillis) {
+        if (destinos == null || destinos.isEmpty()) {
+            throw new IllegalArgumentException("Hace falta al menos un canal destino");
+        }
+
+        List<Sink> creados = new ArrayList<>(destinos.size());
+        try {
+            for (NotificationChannel destino : destinos) {
+                if (destino == null) {
+                    throw new IllegalArgumentException("Los canales destino no pueden ser null");
+                }
+                CircuitBreakerChannel circuito = new CircuitBreakerChannel(
+                        destino, timeoutMillis, fallosParaAbrir, aperturaMillis);
+                AsyncNotificationChannel cola = new AsyncNotificationChannel(
+                        circuito, capacidad, LOTE_POR_DEFECTO, INTERVALO_POR_DEFECTO,
+                        AsyncNotificationChannel.BackpressurePolicy.DROP_OLDEST);
+                creados.add(new Sink(cola, circuito));
+            }
+        } catch (RuntimeException e) {
+            // Si falla a medias, paramos los hilos que ya se habían creado
+            for (Sink creado : creados) {
+                creado.cola.close();
+            }
+            throw e;
+        }
+        this.sinks = Collections.unmodifiableList(creados);
+    }
+
+    @Override
+    public void notify(String message) {
+        for (int i = 0; i < sinks.size(); i++) {
+            sinks.get(i).cola.notify(message);
+        }
+    }
+
+    @Override
+    public void notify(LoanEvent event) {
+        for (int i = 0; i < sinks.size(); i++) {
+            sinks.get(i).cola.notify(event);
+        }
+    }
+
+    /**
+     * Espera a que todos los canales hayan entregado (o descartado) lo aceptado hasta ahora.
+     */
+    public void flush() throws InterruptedException {
+        for (Sink sink : sinks) {
+            sink.cola.flush();
+        }
+    }
+
+    public List<Sink> getSinks() {
+        return sinks;
+    }
+
+    /**
+     * Los indicadores de cada destino. El nombre lleva su posición, porque dos destinos
+     * pueden tener el mismo nombre de canal: "Difusión.0.Consola.cola"...
+     */
+    @Override
+    public void registerGauges(BiConsumer<String, LongSupplier> registro) {
+        for (int i = 0; i < sinks.size(); i++) {
+            Sink sink = sinks.get(i);
+            String prefijo = "Difusión." + i + "." + sink.getName() + ".";
+            registro.accept(prefijo + "cola", sink::getQueueDepth);
+            registro.accept(prefijo + "descartados", sink::getDroppedCount);
+            registro.accept(prefijo + "fallos", sink::getFailureCount);
+            registro.accept(prefijo + "latencia.p99", () -> sink.getLatency().getPercentile(99));
+        }
+    }
+
+    @Override
+    public void close() {
+        for (Sink sink : sinks) {
+            sink.cola.close();
+        }
+    }
+
+    @Override
+    public String getChannelName() {
+        StringBuilder nombre = new StringBuilder("Difusión(");
+        for (int i = 0; i < sinks.size(); i++) {
+            if (i > 0) {
+                nombre.append(", ");
+            }
+            nombre.append(sinks.get(i).getName());
+        }
+        return nombre.append(')').toString();
+    }
+
+    @Override
+    public String toString() {
+        return "Canal: " + getChannelName();
+    }
+
+    /**
+     * Un canal destino con su cola y su circuit breaker.
+     */
+    public static class Sink {
+
+        private final AsyncNotificationChannel cola;
+        private final CircuitBreakerChannel circuito;
+
+        Sink(AsyncNotificationChannel cola, CircuitBreakerChannel circuito) {
+            this.cola = cola;
+            this.circuito = circuito;
+        }
+
+        public String getName() {
+            return circuito.getChannelName();
+        }
+
+        public int getQueueDepth() {
+            return cola.getQueueDepth();
+        }
+
+        /**
+         * Mensajes perdidos: expulsados de la cola llena o rechazados con el circuito abierto.
+         */
+        public long getDroppedCount() {
+            return cola.getDroppedCount() + circuito.getRejectedCount();
+        }
+
+        public long getDeliveredCount() {
+            return circuito.getDeliveredCount();
+        }
+
+        public long getFailureCount() {
+            return circuito.getFailureCount();
+        }
+
+        public long getTimeoutCount() {
+            return circuito.getTimeoutCount();
+        }
+
+        public CircuitBreakerChannel.State getCircuitState() {
+            return circuito.getState();
+        }
+
+        /**
+         * Duración de cada entrega en este canal, en nanosegundos.
+         */
+        public LogLinearHistogram getLatency() {
+            return circuito.getLatency();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s[cola=%d, entregados=%d, descartados=%d, fallos=%d, circuito=%s, p99=%dns]",
+                               getName(), getQueueDepth(), getDeliveredCount(), getDroppedCount(),
+                               getFailureCount(), getCircuitState(), getLatency().getPercentile(99));
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package notification;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Escribe las notificaciones en ficheros, con el mismo texto que ConsoleNotification.
+ *
+ * System.out.println sincroniza y vacía en cada línea: una llamada al sistema por
+ * notificación. Aquí cada hilo monta su línea directamente en UTF-8 en su propio
+ * byte[] (los trozos fijos ya van codificados), sin lock; con el lock solo se copian
+ * los bytes a un ByteBuffer directo que se reutiliza. Ese buffer se escribe con un FileChannel cuando se llena, cada
+ * intervaloFlushMillis (desde un hilo de fondo) y al cerrar.
+ *
+ * Los ficheros se llaman prefijo-000001.log, prefijo-000002.log... y se pasa al
+ * siguiente cuando el actual llega a maxBytes o lleva abierto maxMillis.
+ * Si el directorio ya tenía ficheros, se sigue la numeración. Con maxFicheros se
+ * borran al abrir y al rotar todos los que queden por debajo de los maxFicheros últimos.
+ *
+ * Se puede usar desde varios hilos a la vez. Hay que cerrarlo con close() para no
+ * perder lo que quede en el buffer.
+ */
+public class FileNotificationChannel implements NotificationChannel, AutoCloseable {
+
+    private static final byte[] PREFIJO_LINEA = "[NOTIFICACIÓN] ".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] MENSAJE_VACIO = "(mensaje vacío)".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] SALTO = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+    private static final int TAMANO_BUFFER = 256 * 1024;
+    private static final long MAX_BYTES_POR_DEFECTO = 64L * 1024 * 1024;
+    private static final long MAX_MILLIS_POR_DEFECTO = TimeUnit.HOURS.toMillis(1);
+    private static final long FLUSH_POR_DEFECTO = 100;
+
+    private final Path directorio;
+    private final String prefijo;
+    private final long maxBytes;
+    private final long maxNanos;
+    private final int maxFicheros;
+    private final ScheduledExecutorService vaciador;
+
+    // Cada hilo monta su línea en lo suyo, sin lock
+    private final ThreadLocal<Utf8LineBuilder> lineas;
+
+    // Todo lo de abajo va con el lock del propio canal
+    private final ByteBuffer buffer;
+    private FileChannel fichero;
+    private Path rutaActual;
+    private int numeroFichero;
+    private long bytesEnFichero;
+    private long abiertoDesde;
+    private long lineasEscritas;
+    private boolean cerrado;
+
+    public FileNotificationChannel(Path directorio, String prefijo) throws IOException {
+        this(directorio, prefijo, MAX_BYTES_POR_DEFECTO, MAX_MILLIS_POR_DEFECTO, FLUSH_POR_DEFECTO, 0);
+    }
+
+    /**
+     * maxMillis = 0 desactiva la rotación por tiempo e intervaloFlushMillis = 0 el
+     * vaciado periódico (entonces solo se escribe al llenarse el buffer, con flush() o al cerrar).
+     * La rotación por tiempo se comprueba en cada flush. maxFicheros = 0 guarda todos los ficheros.
+     */
+    public FileNotificationChannel(Path directorio, String prefijo, long maxBytes, long maxMillis,
+                                   long intervaloFlushMillis, int maxFicheros) throws IOException {
+        if (directorio == null) {
+            throw new IllegalArgumentException("El directorio no puede ser null");
+        }
+        if (prefijo == null || prefijo.trim().isEmpty()) {
+            throw new IllegalArgumentException("El prefijo no puede estar vacío");
+        }
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("El tamaño máximo debe ser mayor que 0");
+        }
+        if (maxMillis < 0) {
+            throw new IllegalArgumentException("El tiempo máximo no puede ser negativo");
+        }
+        if (intervaloFlushMillis < 0) {
+            throw new IllegalArgumentException("El intervalo de flush no puede ser negativo");
+        }
+        if (maxFicheros < 0) {
+            throw new IllegalArgumentException("El máximo de ficheros no puede ser negativo");
+        }
+
+        this.directorio = directorio;
+        this.prefijo = prefijo.trim();
+        this.maxBytes = maxBytes;
+        this.maxNanos = maxMillis == 0 ? Long.MAX_VALUE : TimeUnit.MILLISECONDS.toNanos(maxMillis);
+        this.maxFicheros = maxFicheros;
+        this.lineas = ThreadLocal.withInitial(Utf8LineBuilder::new);
+        this.buffer = ByteBuffer.allocateDirect(TAMANO_BUFFER);
+
+        Files.createDirectories(directorio);
+        this.numeroFichero = ultimoNumero();
+        abrirSiguiente();
+        borrarAntiguos();
+
+        if (intervaloFlushMillis > 0) {
+            this.vaciador = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread hilo = new Thread(r, "fichero-" + this.prefijo);
+                hilo.setDaemon(true);
+                return hilo;
+            });
+            this.vaciador.scheduleWithFixedDelay(this::flushPeriodico,
+                    intervaloFlushMillis, intervaloFlushMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.vaciador = null;
+        }
+    }
+
+    @Override
+    public void notify(String message) {
+        Utf8LineBuilder linea = lineas.get().reset().append(PREFIJO_LINEA);
+        if (message == null || message.trim().isEmpty()) {
+            linea.append(MENSAJE_VACIO);
+        } else {
+            linea.append(message);
+        }
+        escribir(linea.append(SALTO));
+    }
+
+    @Override
+    public void notify(LoanEvent event) {
+        if (event == null) {
+            notify((String) null);
+            return;
+        }
+        Utf8LineBuilder linea = lineas.get().reset().append(PREFIJO_LINEA);
+        escribir(event.appendTo(linea).append(SALTO));
+    }
+
+    private synchronized void escribir(Utf8LineBuilder linea) {
+        if (cerrado) {
+            throw new IllegalStateException("El canal de fichero está cerrado");
+        }
+        try {
+            if (bytesEnFichero + buffer.position() >= maxBytes) {
+                rotar();
+            }
+            int escritos = 0;
+            int longitud = linea.length();
+            while (escritos < longitud) {
+                if (!buffer.hasRemaining()) {
+                    volcarBuffer();
+                }
+                int trozo = Math.min(buffer.remaining(), longitud - escritos);
+                buffer.put(linea.bytes(), escritos, trozo);
+                escritos += trozo;
+            }
+            lineasEscritas++;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error escribiendo en " + rutaActual, e);
+        }
+    }
+
+    // Con el lock: escribe el buffer entero en el fichero actual
+    private void volcarBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            bytesEnFichero += fichero.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void rotar() throws IOException {
+        volcarBuffer();
+        fichero.close();
+        abrirSiguiente();
+        borrarAntiguos();
+    }
+
+    // Borra todos los ficheros nuestros que quedan fuera de los maxFicheros últimos, no solo
+    // el anterior: puede haber huecos o restos de una ejecución con otro maxFicheros
+    private void borrarAntiguos() throws IOException {
+        if (maxFicheros == 0 || numeroFichero <= maxFicheros) {
+            return;
+        }
+        int limite = numeroFichero - maxFicheros;
+        try (Stream<Path> ficheros = Files.list(directorio)) {
+            for (Path ruta : (Iterable<Path>) ficheros::iterator) {
+                int numero = numeroDe(ruta);
+                if (numero > 0 && numero <= limite) {
+                    Files.deleteIfExists(ruta);
+                }
+            }
+        }
+    }
+
+    private void abrirSiguiente() throws IOException {
+        numeroFichero++;
+        rutaActual = ruta(numeroFichero);
+        fichero = FileChannel.open(rutaActual, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        bytesEnFichero = fichero.size();
+        abiertoDesde = System.nanoTime();
+    }
+
+    private Path ruta(int numero) {
+        return directorio.resolve(String.format(Locale.ROOT, "%s-%06d.log", prefijo, numero));
+    }
+
+    // Mayor número de fichero con este prefijo que ya haya en el directorio
+    private int ultimoNumero() throws IOException {
+        int mayor = 0;
+        try (Stream<Path> ficheros = Files.list(directorio)) {
+            for (Path ruta : (Iterable<Path>) ficheros::iterator) {
+                mayor = Math.max(mayor, numeroDe(ruta));
+            }
+        }
+        return mayor;
+    }
+
+    // Número de un fichero prefijo-NNNNNN.log, o -1 si no es uno de los nuestros
+    private int numeroDe(Path ruta) {
+        String nombre = ruta.getFileName().toString();
+        int inicio = prefijo.length() + 1;
+        if (nombre.length() <= inicio + 4 || !nombre.startsWith(prefijo + "-") || !nombre.endsWith(".log")) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(nombre.substring(inicio, nombre.length() - 4));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Escribe en el fichero lo que haya en el buffer (sin fsync) y rota si toca por tiempo.
+     */
+    public synchronized void flush() {
+        if (cerrado) {
+            return;
+        }
+        try {
+            volcarBuffer();
+            if (System.nanoTime() - abiertoDesde >= maxNanos) {
+                rotar();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error escribiendo en " + rutaActual, e);
+        }
+    }
+
+    private void flushPeriodico() {
+        try {
+            flush();
+        } catch (UncheckedIOException e) {
+            // Se vuelve a intentar en el siguiente intervalo; notify y close sí avisan del error
+        }
+    }
+
+    public synchronized Path getCurrentFile() {
+        return rutaActual;
+    }
+
+    public synchronized long getLinesWritten() {
+        return lineasEscritas;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (vaciador != null) {
+            vaciador.shutdown();
+        }
+        synchronized (this) {
+            if (cerrado) {
+                return;
+            }
+            cerrado = true;
+            try {
+                volcarBuffer();
+                fichero.force(false);
+            } finally {
+                fichero.close();
+            }
+        }
+    }
+
+    @Override
+    public String getChannelName() {
+        return "Fichero";
+    }
+
+    @Override
+    public String toString() {
+        return "Canal: " + getChannelName() + " [" + directorio.resolve(prefijo + "-*.log") + "]";
+    }
+}
@@ -0,0 +1,18 @@
+package notification;
+
+import java.util.function.BiConsumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Canal con indicadores que publicar (profundidad de su cola, descartes, fallos...).
+ * 
+ * Las métricas solo conocen esta interfaz: le piden los indicadores al canal y él los
+ * da con su nombre, sin que las métricas dependan de cada clase de canal.
+ */
+public interface GaugeSource {
+    
+    /**
+     * Pasa cada indicador (nombre único dentro del canal y cómo leerlo) a quien los registra.
+     */
+    void registerGauges(BiConsumer<String, LongSupplier> registro);
+}
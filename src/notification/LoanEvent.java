@@ -0,0 +1,143 @@
+package notification;
+
+import library.Loan;
+import library.Money;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Evento de un préstamo ya cobrado: el préstamo, su coste (en milésimas de euro)
+ * y la política aplicada.
+ * 
+ * Los servicios pasan este objeto al canal en vez de un String ya montado.
+ * El texto solo se construye cuando un canal lo necesita de verdad (render()),
+ * así si el canal descarta el mensaje o lo escribe en otro hilo no pagamos
+ * el formateo en el camino del préstamo.
+ */
+public final class LoanEvent {
+    
+    // Cada servicio muestra el préstamo con su propio texto
+    private enum Tipo {
+        PROCESADO,
+        COBRADO
+    }
+    
+    // Trozos fijos del texto, en String y ya en UTF-8: los dos appendTo escriben lo mismo
+    private static final Fragmento PROCESADO_LIBRO = new Fragmento("Préstamo procesado - Libro: '");
+    private static final Fragmento PROCESADO_PRESTATARIO = new Fragmento("' | Prestatario: ");
+    private static final Fragmento PROCESADO_DIAS = new Fragmento(" | Días: ");
+    private static final Fragmento PROCESADO_COSTE = new Fragmento(" | Coste: ");
+    private static final Fragmento PROCESADO_POLITICA = new Fragmento("€ | Política: ");
+    private static final Fragmento COBRADO_LIBRO = new Fragmento("Préstamo de '");
+    private static final Fragmento COBRADO_PRESTATARIO = new Fragmento("' a ");
+    private static final Fragmento COBRADO_COSTE = new Fragmento(": Coste: ");
+    private static final Fragmento COBRADO_POLITICA = new Fragmento("€ (");
+    private static final Fragmento COBRADO_FIN = new Fragmento(")");
+    
+    private final Tipo tipo;
+    private final Loan loan;
+    private final long costMillis;
+    private final String policyName;
+    
+    private LoanEvent(Tipo tipo, Loan loan, long costMillis, String policyName) {
+        if (loan == null) {
+            throw new IllegalArgumentException("El préstamo no puede ser null");
+        }
+        if (policyName == null) {
+            throw new IllegalArgumentException("El nombre de la política no puede ser null");
+        }
+        
+        this.tipo = tipo;
+        this.loan = loan;
+        this.costMillis = costMillis;
+        this.policyName = policyName;
+    }
+    
+    /**
+     * Evento de LoanService: "Préstamo procesado - Libro: ... | Política: ...".
+     */
+    public static LoanEvent processed(Loan loan, long costMillis, String policyName) {
+        return new LoanEvent(Tipo.PROCESADO, loan, costMillis, policyName);
+    }
+    
+    /**
+     * Evento de FullLoanService: "Préstamo de '...' a ...: Coste: ...€ (...)".
+     */
+    public static LoanEvent charged(Loan loan, long costMillis, String policyName) {
+        return new LoanEvent(Tipo.COBRADO, loan, costMillis, policyName);
+    }
+    
+    public Loan getLoan() {
+        return loan;
+    }
+    
+    public double getCost() {
+        return Money.toEuros(costMillis);
+    }
+    
+    public long getCostMillis() {
+        return costMillis;
+    }
+    
+    public String getPolicyName() {
+        return policyName;
+    }
+    
+    /**
+     * Escribe el mensaje en el StringBuilder que nos pasen (se puede reutilizar).
+     */
+    public StringBuilder appendTo(StringBuilder sb) {
+        if (tipo == Tipo.PROCESADO) {
+            sb.append(PROCESADO_LIBRO.texto).append(loan.getBook().getTitle())
+              .append(PROCESADO_PRESTATARIO.texto).append(loan.getBorrowerName())
+              .append(PROCESADO_DIAS.texto).append(loan.getDaysLoaned())
+              .append(PROCESADO_COSTE.texto);
+            MoneyFormat.appendMillis(sb, costMillis);
+            return sb.append(PROCESADO_POLITICA.texto).append(policyName);
+        }
+        
+        sb.append(COBRADO_LIBRO.texto).append(loan.getBook().getTitle())
+          .append(COBRADO_PRESTATARIO.texto).append(loan.getBorrowerName())
+          .append(COBRADO_COSTE.texto);
+        MoneyFormat.appendMillis(sb, costMillis);
+        return sb.append(COBRADO_POLITICA.texto).append(policyName).append(COBRADO_FIN.texto);
+    }
+    
+    /**
+     * El mismo mensaje, directamente en UTF-8 (para FileNotificationChannel).
+     */
+    Utf8LineBuilder appendTo(Utf8LineBuilder linea) {
+        if (tipo == Tipo.PROCESADO) {
+            linea.append(PROCESADO_LIBRO.utf8).append(loan.getBook().getTitle())
+                 .append(PROCESADO_PRESTATARIO.utf8).append(loan.getBorrowerName())
+                 .append(PROCESADO_DIAS.utf8).append(loan.getDaysLoaned())
+                 .append(PROCESADO_COSTE.utf8);
+            MoneyFormat.appendMillis(linea, costMillis);
+            return linea.append(PROCESADO_POLITICA.utf8).append(policyName);
+        }
+        
+        linea.append(COBRADO_LIBRO.utf8).append(loan.getBook().getTitle())
+             .append(COBRADO_PRESTATARIO.utf8).append(loan.getBorrowerName())
+             .append(COBRADO_COSTE.utf8);
+        MoneyFormat.appendMillis(linea, costMillis);
+        return linea.append(COBRADO_POLITICA.utf8).append(policyName).append(COBRADO_FIN.utf8);
+    }
+    
+    public String render() {
+        return appendTo(new StringBuilder(128)).toString();
+    }
+    
+    @Override
+    public String toString() {
+        return render();
+    }
+    
+    private static final class Fragmento {
+        final String texto;
+        final byte[] utf8;
+        
+        Fragmento(String texto) {
+            this.texto = texto;
+            this.utf8 = texto.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package notification;
+
+import java.math.BigDecimal;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+/**
+ * Formatea importes en euros con dos decimales sin pasar por String.format.
+ *
+ * Trabaja con céntimos en un long y los escribe directamente en un StringBuilder,
+ * así no se crea un Formatter por cada mensaje. Da el mismo texto que "%.2f" con el
+ * locale por defecto, como printStatistics y los toString: separador decimal del
+ * locale (16,88 en es_ES, 16.88 en en_US), redondeo de la mitad hacia arriba
+ * (6075 milésimas -> 6,08) y signo '-' en cualquier negativo, también en -0,00.
+ * Si el locale no usa dígitos ASCII se pasa por String.format.
+ */
+public final class MoneyFormat {
+
+    // Símbolos del último locale visto; se recalculan si cambia el locale por defecto
+    private static volatile Simbolos simbolos = new Simbolos(Locale.getDefault(Locale.Category.FORMAT));
+
+    private MoneyFormat() {
+    }
+
+    /**
+     * Añade un importe en milésimas (ver library.Money) con dos decimales.
+     * Aquí el redondeo es exacto porque no hay double de por medio.
+     */
+    public static StringBuilder appendMillis(StringBuilder sb, long millis) {
+        Simbolos s = simbolos();
+        long absoluto = Math.abs(millis);
+        if (!s.digitosAscii || absoluto < 0) {
+            // absoluto < 0: Long.MIN_VALUE no tiene valor absoluto
+            return sb.append(String.format(s.locale, "%.2f", BigDecimal.valueOf(millis, 3)));
+        }
+        long centimos = centimos(absoluto);
+        if (millis < 0) {
+            sb.append('-');
+        }
+        long resto = centimos % 100;
+        sb.append(centimos / 100).append(s.separador);
+        if (resto < 10) {
+            sb.append('0');
+        }
+        return sb.append(resto);
+    }
+
+    /**
+     * Lo mismo que appendMillis(StringBuilder, long), en una línea UTF-8.
+     */
+    static Utf8LineBuilder appendMillis(Utf8LineBuilder linea, long millis) {
+        Simbolos s = simbolos();
+        long absoluto = Math.abs(millis);
+        if (!s.digitosAscii || s.separador >= 0x80 || absoluto < 0) {
+            return linea.append(appendMillis(new StringBuilder(24), millis).toString());
+        }
+        long centimos = centimos(absoluto);
+        if (millis < 0) {
+            linea.appendAscii('-');
+        }
+        long resto = centimos % 100;
+        linea.append(centimos / 100).appendAscii(s.separador);
+        if (resto < 10) {
+            linea.appendAscii('0');
+        }
+        return linea.append(resto);
+    }
+
+    // Milésimas a céntimos redondeando la mitad hacia arriba, sin desbordar cerca de Long.MAX_VALUE
+    private static long centimos(long absoluto) {
+        return absoluto / 10 + (absoluto % 10 >= 5 ? 1 : 0);
+    }
+
+    private static Simbolos simbolos() {
+        Locale locale = Locale.getDefault(Locale.Category.FORMAT);
+        Simbolos s = simbolos;
+        if (s.locale != locale) {
+            s = new Simbolos(locale);
+            simbolos = s;
+        }
+        return s;
+    }
+
+    private static final class Simbolos {
+        final Locale locale;
+        final char separador;
+        final boolean digitosAscii;
+
+        Simbolos(Locale locale) {
+            DecimalFormatSymbols dfs = DecimalFormatSymbols.getInstance(locale);
+            this.locale = locale;
+            this.separador = dfs.getDecimalSeparator();
+            this.digitosAscii = dfs.getZeroDigit() == '0';
+        }
+    }
+}
@@ -10,5 +10,18 @@ public interface NotificationChannel {
     
     void notify(String message);
     
+    /**
+     * Notifica un préstamo sin haber montado aún el texto.
+     * Por defecto se formatea aquí mismo; un canal puede sobrescribirlo para
+     * descartar el evento o formatearlo más tarde en otro hilo.
+     */
+    default void notify(LoanEvent event) {
+        if (event == null) {
+            notify((String) null);
+            return;
+        }
+        notify(event.render());
+    }
+    
     String getChannelName();
 }
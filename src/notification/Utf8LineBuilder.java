@@ -0,0 +1,86 @@
+package notification;
+
+import codec.Utf8;
+import java.util.Arrays;
+
+/**
+ * Línea de texto que se monta directamente en UTF-8 sobre un byte[] reutilizable.
+ *
+ * FileNotificationChannel la usa para no pasar por StringBuilder, copiar a char[] y
+ * codificar después: los trozos fijos ya vienen en UTF-8 y el resto se codifica al
+ * añadirlo. No es thread-safe; cada hilo tiene la suya.
+ */
+final class Utf8LineBuilder {
+
+    // Lo más largo que ocupa un long en decimal, con el signo
+    private static final int MAX_DIGITOS = 20;
+
+    private byte[] bytes = new byte[512];
+    private int longitud;
+
+    Utf8LineBuilder reset() {
+        longitud = 0;
+        return this;
+    }
+
+    /**
+     * Añade bytes que ya están en UTF-8 (los trozos fijos de cada mensaje).
+     */
+    Utf8LineBuilder append(byte[] utf8) {
+        asegurar(utf8.length);
+        System.arraycopy(utf8, 0, bytes, longitud, utf8.length);
+        longitud += utf8.length;
+        return this;
+    }
+
+    Utf8LineBuilder append(String texto) {
+        asegurar(3 * texto.length());
+        longitud = Utf8.encode(texto, bytes, longitud);
+        return this;
+    }
+
+    /**
+     * Solo para caracteres ASCII (dígitos, signos, separadores).
+     */
+    Utf8LineBuilder appendAscii(char c) {
+        asegurar(1);
+        bytes[longitud++] = (byte) c;
+        return this;
+    }
+
+    Utf8LineBuilder append(long valor) {
+        if (valor == Long.MIN_VALUE) {
+            return append(Long.toString(valor));
+        }
+        asegurar(MAX_DIGITOS);
+        if (valor < 0) {
+            bytes[longitud++] = '-';
+            valor = -valor;
+        }
+        int digitos = 1;
+        for (long resto = valor / 10; resto != 0; resto /= 10) {
+            digitos++;
+        }
+        int j = longitud + digitos;
+        do {
+            bytes[--j] = (byte) ('0' + valor % 10);
+            valor /= 10;
+        } while (valor != 0);
+        longitud += digitos;
+        return this;
+    }
+
+    byte[] bytes() {
+        return bytes;
+    }
+
+    int length() {
+        return longitud;
+    }
+
+    private void asegurar(int mas) {
+        if (longitud + mas > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(longitud + mas, bytes.length * 2));
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package policy;
+
+import library.Book;
+import library.Loan;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decorador que precalcula el coste de otra política para cada número de días.
+ * 
+ * Standard y Premium solo dependen de los días, y casi todos los préstamos duran
+ * entre 1 y 90 días. Así que al crear la caché calculamos una vez el coste de 1 a
+ * maxDias y lo guardamos en un array: luego cada cálculo es una lectura del array.
+ * Los préstamos más largos se delegan en la política original.
+ * 
+ * Las políticas marcadas con @NonCacheablePolicy no se pueden envolver.
+ * 
+ * Contar aciertos y fallos cuesta un incremento atómico por cálculo, que es más que
+ * la propia lectura del array; si no se necesitan las estadísticas se pueden desactivar.
+ */
+public class CachingLoanPolicy implements LoanPolicy {
+    
+    // Préstamo de mentira para precalcular: a una política pura solo le importan los días
+    private static final Book LIBRO_FICTICIO = new Book("-", "-", "-");
+    private static final String PRESTATARIO_FICTICIO = "-";
+    
+    private final LoanPolicy delegada;
+    private final double[] costePorDias;
+    private final long[] costeMillisPorDias;
+    private final LongAdder aciertos;
+    private final LongAdder fallos;
+    private final boolean contarEstadisticas;
+    
+    public CachingLoanPolicy(LoanPolicy delegada, int maxDias) {
+        this(delegada, maxDias, true);
+    }
+    
+    public CachingLoanPolicy(LoanPolicy delegada, int maxDias, boolean contarEstadisticas) {
+        if (delegada == null) {
+            throw new IllegalArgumentException("La política no puede ser null");
+        }
+        if (maxDias <= 0) {
+            throw new IllegalArgumentException("El máximo de días debe ser mayor que 0");
+        }
+        if (!isCacheable(delegada)) {
+            throw new IllegalArgumentException(delegada.getPolicyName() + " no se puede cachear");
+        }
+        
+        this.delegada = delegada;
+        this.costePorDias = new double[maxDias + 1];
+        this.costeMillisPorDias = new long[maxDias + 1];
+        for (int dias = 1; dias <= maxDias; dias++) {
+            Loan ficticio = new Loan(LIBRO_FICTICIO, PRESTATARIO_FICTICIO, dias);
+            costePorDias[dias] = delegada.calculateCost(ficticio);
+            costeMillisPorDias[dias] = delegada.calculateCostMillis(ficticio);
+        }
+        this.aciertos = new LongAdder();
+        this.fallos = new LongAdder();
+        this.contarEstadisticas = contarEstadisticas;
+    }
+    
+    /**
+     * Envuelve la política si se puede cachear; si no, la devuelve tal cual.
+     */
+    public static LoanPolicy wrap(LoanPolicy policy, int maxDias) {
+        if (policy == null) {
+            throw new IllegalArgumentException("La política no puede ser null");
+        }
+        return isCacheable(policy) ? new CachingLoanPolicy(policy, maxDias) : policy;
+    }
+    
+    public static boolean isCacheable(LoanPolicy policy) {
+        return !policy.getClass().isAnnotationPresent(NonCacheablePolicy.class);
+    }
+    
+    @Override
+    public double calculateCost(Loan loan) {
+        if (loan == null) {
+            throw new IllegalArgumentException("El préstamo no puede ser null");
+        }
+        
+        int dias = loan.getDaysLoaned();
+        if (dias < costePorDias.length) {
+            if (contarEstadisticas) {
+                aciertos.increment();
+            }
+            return costePorDias[dias];
+        }
+        if (contarEstadisticas) {
+            fallos.increment();
+        }
+        return delegada.calculateCost(loan);
+    }
+    
+    @Override
+    public long calculateCostMillis(Loan loan) {
+        if (loan == null) {
+            throw new IllegalArgumentException("El préstamo no puede ser null");
+        }
+        
+        int dias = loan.getDaysLoaned();
+        if (dias < costeMillisPorDias.length) {
+            if (contarEstadisticas) {
+                aciertos.increment();
+            }
+            return costeMillisPorDias[dias];
+        }
+        if (contarEstadisticas) {
+            fallos.increment();
+        }
+        return delegada.calculateCostMillis(loan);
+    }
+    
+    @Override
+    public void calculateCosts(int[] daysLoaned, double[] costs) {
+        if (daysLoaned == null || costs == null) {
+            throw new IllegalArgumentException("Los arrays no pueden ser null");
+        }
+        if (costs.length < daysLoaned.length) {
+            throw new IllegalArgumentException("El array de costes es más corto que el de días");
+        }
+        
+        long fuera = 0;
+        for (int i = 0; i < daysLoaned.length; i++) {
+            int dias = daysLoaned[i];
+            if (dias > 0 && dias < costePorDias.length) {
+                costs[i] = costePorDias[dias];
+            } else {
+                costs[i] = delegada.calculateCost(new Loan(LIBRO_FICTICIO, PRESTATARIO_FICTICIO, dias));
+                fuera++;
+            }
+        }
+        if (contarEstadisticas) {
+            aciertos.add(daysLoaned.length - fuera);
+            fallos.add(fuera);
+        }
+    }
+    
+    @Override
+    public void calculateCostsMillis(int[] daysLoaned, long[] costs) {
+        if (daysLoaned == null || costs == null) {
+            throw new IllegalArgumentException("Los arrays no pueden ser null");
+        }
+        if (costs.length < daysLoaned.length) {
+            throw new IllegalArgumentException("El array de costes es más corto que el de días");
+        }
+        
+        long fuera = 0;
+        for (int i = 0; i < daysLoaned.length; i++) {
+            int dias = daysLoaned[i];
+            if (dias > 0 && dias < costeMillisPorDias.length) {
+                costs[i] = costeMillisPorDias[dias];
+            } else {
+                costs[i] = delegada.calculateCostMillis(new Loan(LIBRO_FICTICIO, PRESTATARIO_FICTICIO, dias));
+                fuera++;
+            }
+        }
+        if (contarEstadisticas) {
+            aciertos.add(daysLoaned.length - fuera);
+            fallos.add(fuera);
+        }
+    }
+    
+    @Override
+    public String getPolicyName() {
+        return delegada.getPolicyName();
+    }
+    
+    public int getMaxCachedDays() {
+        return costePorDias.length - 1;
+    }
+    
+    public long getHits() {
+        return aciertos.sum();
+    }
+    
+    public long getMisses() {
+        return fallos.sum();
+    }
+    
+    public double getHitRate() {
+        long a = aciertos.sum();
+        long total = a + fallos.sum();
+        return total == 0 ? 0.0 : (double) a / total;
+    }
+    
+    @Override
+    public String toString() {
+        return delegada + " [caché hasta " + getMaxCachedDays() + " días]";
+    }
+}
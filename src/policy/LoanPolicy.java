@@ -1,6 +1,7 @@
 package policy;
 
 import library.Loan;
+import library.Money;
 
 /**
  * Interfaz para las políticas de préstamo.
@@ -17,6 +18,45 @@ public interface LoanPolicy {
      */
     double calculateCost(Loan loan);
     
+    /**
+     * El mismo coste en milésimas de euro (ver Money), sin errores de redondeo.
+     * Por defecto se convierte el double; las políticas que pueden lo calculan exacto.
+     */
+    default long calculateCostMillis(Loan loan) {
+        return Money.fromEuros(calculateCost(loan));
+    }
+    
+    /**
+     * Calcula por lotes: costs[i] = coste de un préstamo de daysLoaned[i] días.
+     * 
+     * Pensado para facturar muchos préstamos de golpe sin crear un Loan por cada uno.
+     * Solo tiene sentido en políticas que dependen únicamente de los días, por eso
+     * por defecto no está soportado y cada política lo sobrescribe si puede. Las que
+     * dependen del prestatario o del libro (como RoutingLoanPolicy) no deben hacerlo.
+     * Los días deben venir ya validados (mayores que 0), igual que en Loan.
+     */
+    default void calculateCosts(int[] daysLoaned, double[] costs) {
+        throw new UnsupportedOperationException(
+                getPolicyName() + " no soporta el cálculo por lotes");
+    }
+    
+    /**
+     * Igual que calculateCosts pero en milésimas de euro.
+     */
+    default void calculateCostsMillis(int[] daysLoaned, long[] costs) {
+        throw new UnsupportedOperationException(
+                getPolicyName() + " no soporta el cálculo por lotes");
+    }
+    
+    /**
+     * La política que de verdad se aplica a este préstamo.
+     * Normalmente es ella misma; las que eligen otra según el préstamo
+     * (RoutingLoanPolicy) devuelven la elegida, así los servicios la resuelven una vez.
+     */
+    default LoanPolicy resolve(Loan loan) {
+        return this;
+    }
+    
     /**
      * Nombre de la política para mostrar al usuario.
      */
@@ -0,0 +1,20 @@
+package policy;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marca una política cuyo coste no depende solo de los días del préstamo
+ * (por ejemplo, depende del prestatario o del libro) o puede cambiar con el
+ * tiempo (una política que se recarga de un fichero).
+ * 
+ * CachingLoanPolicy no guarda en caché las políticas marcadas así.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface NonCacheablePolicy {
+}
@@ -1,36 +1,82 @@
 package policy;
 
 import library.Loan;
+import library.Money;
 
 /**
  * Política premium con descuentos.
  * 
  * Tarifa reducida de 0.75€/día y si el préstamo es de más de 7 días
  * se aplica un 10% de descuento adicional.
+ * 
+ * El cálculo se hace en milésimas de euro (750/día, 675/día con descuento) para que
+ * sea exacto; el double de calculateCost sale de ahí.
  */
 public class PremiumLoanPolicy implements LoanPolicy {
     
-    private static final double TARIFA_DIARIA = 0.75;
+    private static final long TARIFA_DIARIA = 750; // milésimas de euro
     private static final int DIAS_PARA_DESCUENTO = 7;
-    private static final double DESCUENTO = 0.10; // 10%
+    private static final long DESCUENTO_PORCENTAJE = 10; // 10%
+    private static final long TARIFA_CON_DESCUENTO =
+            Money.scale(TARIFA_DIARIA, 100 - DESCUENTO_PORCENTAJE, 100);
     
     @Override
     public double calculateCost(Loan loan) {
+        return Money.toEuros(calculateCostMillis(loan));
+    }
+    
+    @Override
+    public long calculateCostMillis(Loan loan) {
         if (loan == null) {
             throw new IllegalArgumentException("El préstamo no puede ser null");
         }
         
         int dias = loan.getDaysLoaned();
-        double coste = dias * TARIFA_DIARIA;
+        long coste = Money.times(TARIFA_DIARIA, dias);
         
         // Descuento del 10% para préstamos largos
         if (dias > DIAS_PARA_DESCUENTO) {
-            coste = coste * (1 - DESCUENTO);
+            coste = Money.scale(coste, 100 - DESCUENTO_PORCENTAJE, 100);
         }
         
         return coste;
     }
     
+    /**
+     * Versión por lotes: el descuento ya va metido en la tarifa diaria (675 en vez de 750),
+     * así el bucle solo elige tarifa y multiplica, sin ramas.
+     */
+    @Override
+    public void calculateCosts(int[] daysLoaned, double[] costs) {
+        comprobarLote(daysLoaned, costs == null ? -1 : costs.length);
+        
+        for (int i = 0; i < daysLoaned.length; i++) {
+            int dias = daysLoaned[i];
+            long tarifa = dias > DIAS_PARA_DESCUENTO ? TARIFA_CON_DESCUENTO : TARIFA_DIARIA;
+            costs[i] = (dias * tarifa) / (double) Money.MILLIS_PER_EURO;
+        }
+    }
+    
+    @Override
+    public void calculateCostsMillis(int[] daysLoaned, long[] costs) {
+        comprobarLote(daysLoaned, costs == null ? -1 : costs.length);
+        
+        for (int i = 0; i < daysLoaned.length; i++) {
+            int dias = daysLoaned[i];
+            long tarifa = dias > DIAS_PARA_DESCUENTO ? TARIFA_CON_DESCUENTO : TARIFA_DIARIA;
+            costs[i] = dias * tarifa;
+        }
+    }
+    
+    private static void comprobarLote(int[] daysLoaned, int longitudCostes) {
+        if (daysLoaned == null || longitudCostes < 0) {
+            throw new IllegalArgumentException("Los arrays no pueden ser null");
+        }
+        if (longitudCostes < daysLoaned.length) {
+            throw new IllegalArgumentException("El array de costes es más corto que el de días");
+        }
+    }
+    
     @Override
     public String getPolicyName() {
         return "Política Premium";
@@ -0,0 +1,158 @@
+package policy;
+
+import library.Loan;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Política por tramos que se vuelve a leer de su fichero cuando cambia.
+ * 
+ * La política compilada se guarda en una referencia volatile: recargar compila la
+ * nueva fuera y luego cambia la referencia de golpe. Los hilos que están calculando
+ * no se bloquean nunca; cada cálculo usa la versión vieja o la nueva, nunca una mezcla.
+ * 
+ * Si el fichero nuevo tiene errores se sigue con la versión anterior y el error
+ * queda en getLastReloadError(). Con un intervalo mayor que 0 un hilo de fondo
+ * comprueba la fecha de modificación del fichero; con 0 solo se recarga a mano.
+ * 
+ * No se puede cachear: CachingLoanPolicy congelaría la tabla que hubiera al crearla.
+ */
+@NonCacheablePolicy
+public class ReloadableLoanPolicy implements LoanPolicy, AutoCloseable {
+    
+    private final Path fichero;
+    private final int maxDias;
+    private final ScheduledExecutorService vigilante;
+    
+    private volatile TieredLoanPolicy actual;
+    private volatile String ultimoError;
+    private FileTime ultimaModificacion;
+    
+    public ReloadableLoanPolicy(Path fichero) throws IOException {
+        this(fichero, 366, 0);
+    }
+    
+    public ReloadableLoanPolicy(Path fichero, int maxDias, long intervaloComprobacionMillis) throws IOException {
+        if (fichero == null) {
+            throw new IllegalArgumentException("El fichero no puede ser null");
+        }
+        if (intervaloComprobacionMillis < 0) {
+            throw new IllegalArgumentException("El intervalo de comprobación no puede ser negativo");
+        }
+        
+        this.fichero = fichero;
+        this.maxDias = maxDias;
+        // La primera carga sí falla si el fichero no vale: no hay versión anterior a la que volver
+        this.ultimaModificacion = Files.getLastModifiedTime(fichero);
+        this.actual = new TieredLoanPolicy(TieredPricingRules.load(fichero), maxDias);
+        
+        if (intervaloComprobacionMillis > 0) {
+            this.vigilante = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread hilo = new Thread(r, "recarga-" + fichero.getFileName());
+                hilo.setDaemon(true);
+                return hilo;
+            });
+            this.vigilante.scheduleWithFixedDelay(this::reloadIfModified,
+                    intervaloComprobacionMillis, intervaloComprobacionMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.vigilante = null;
+        }
+    }
+    
+    /**
+     * Vuelve a leer el fichero. Devuelve true si se ha cambiado la política.
+     */
+    public synchronized boolean reload() {
+        try {
+            FileTime modificacion = Files.getLastModifiedTime(fichero);
+            TieredLoanPolicy nueva = new TieredLoanPolicy(TieredPricingRules.load(fichero), maxDias);
+            actual = nueva;
+            ultimaModificacion = modificacion;
+            ultimoError = null;
+            return true;
+        } catch (IOException | IllegalArgumentException e) {
+            ultimoError = e.getMessage();
+            return false;
+        }
+    }
+    
+    /**
+     * Recarga solo si la fecha de modificación del fichero ha cambiado.
+     */
+    public synchronized boolean reloadIfModified() {
+        try {
+            if (Files.getLastModifiedTime(fichero).equals(ultimaModificacion)) {
+                return false;
+            }
+        } catch (IOException e) {
+            ultimoError = e.getMessage();
+            return false;
+        }
+        return reload();
+    }
+    
+    /**
+     * La versión actual: los servicios sacan de ella coste y nombre, así una recarga
+     * entre las dos llamadas no los mezcla.
+     */
+    @Override
+    public LoanPolicy resolve(Loan loan) {
+        return actual;
+    }
+    
+    @Override
+    public double calculateCost(Loan loan) {
+        return actual.calculateCost(loan);
+    }
+    
+    @Override
+    public long calculateCostMillis(Loan loan) {
+        return actual.calculateCostMillis(loan);
+    }
+    
+    @Override
+    public void calculateCosts(int[] daysLoaned, double[] costs) {
+        actual.calculateCosts(daysLoaned, costs);
+    }
+    
+    @Override
+    public void calculateCostsMillis(int[] daysLoaned, long[] costs) {
+        actual.calculateCostsMillis(daysLoaned, costs);
+    }
+    
+    /**
+     * La versión compilada que se está usando ahora mismo.
+     */
+    public TieredLoanPolicy getCurrent() {
+        return actual;
+    }
+    
+    /**
+     * Mensaje del último intento de recarga fallido, o null si el último fue bien.
+     */
+    public String getLastReloadError() {
+        return ultimoError;
+    }
+    
+    @Override
+    public String getPolicyName() {
+        return actual.getPolicyName();
+    }
+    
+    @Override
+    public void close() {
+        if (vigilante != null) {
+            vigilante.shutdownNow();
+        }
+    }
+    
+    @Override
+    public String toString() {
+        return actual + " [recargable desde " + fichero + "]";
+    }
+}
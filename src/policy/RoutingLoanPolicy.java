@@ -0,0 +1,151 @@
+package policy;
+
+import library.Loan;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+/**
+ * Política que elige otra política para cada préstamo, según el prestatario
+ * (por ejemplo, su categoría de socio) o el ISBN del libro.
+ * 
+ * Así un solo LoanService atiende a socios estándar y premium a la vez.
+ * Si la política elegida también enruta, se le pide a ella la final en cada préstamo.
+ * Resolver la clave con el resolvedor puede ser caro (un mapa, una base de datos),
+ * así que lo resuelto se guarda en una caché acotada asociativa de 2 vías: cada clave
+ * solo puede estar en las dos posiciones contiguas que le tocan por su hash, y una
+ * clave nueva desplaza a la más antigua de las dos. Con la caché caliente, resolver
+ * es un hash (ya guardado en el String), una o dos lecturas del array y un equals.
+ * 
+ * Cada posición guarda un par clave-política inmutable, así que varios hilos la
+ * pueden leer y escribir sin locks: en el peor caso dos hilos resuelven la misma clave.
+ */
+@NonCacheablePolicy
+public class RoutingLoanPolicy implements LoanPolicy {
+    
+    /**
+     * De qué dato del préstamo sale la clave de enrutado.
+     */
+    public enum RoutingKey {
+        BORROWER,
+        ISBN
+    }
+    
+    private final RoutingKey tipoClave;
+    private final Function<String, LoanPolicy> resolvedor;
+    private final LoanPolicy porDefecto;
+    private final AtomicReferenceArray<Entrada> cache;
+    private final int desplazamiento;
+    
+    /**
+     * El resolvedor puede devolver null, y entonces se usa la política por defecto.
+     * La capacidad se redondea a la siguiente potencia de 2 (mínimo 2).
+     */
+    public RoutingLoanPolicy(RoutingKey tipoClave, Function<String, LoanPolicy> resolvedor,
+                             LoanPolicy porDefecto, int capacidadCache) {
+        if (tipoClave == null) {
+            throw new IllegalArgumentException("El tipo de clave no puede ser null");
+        }
+        if (resolvedor == null) {
+            throw new IllegalArgumentException("El resolvedor no puede ser null");
+        }
+        if (porDefecto == null) {
+            throw new IllegalArgumentException("La política por defecto no puede ser null");
+        }
+        if (capacidadCache <= 0 || capacidadCache > (1 << 30)) {
+            throw new IllegalArgumentException("La capacidad de la caché debe estar entre 1 y 2^30");
+        }
+        
+        int tamano = Math.max(2, Integer.highestOneBit(capacidadCache));
+        if (tamano < capacidadCache) {
+            tamano <<= 1;
+        }
+        this.tipoClave = tipoClave;
+        this.resolvedor = resolvedor;
+        this.porDefecto = porDefecto;
+        this.cache = new AtomicReferenceArray<>(tamano);
+        this.desplazamiento = 32 - Integer.numberOfTrailingZeros(tamano);
+    }
+    
+    @Override
+    public LoanPolicy resolve(Loan loan) {
+        if (loan == null) {
+            throw new IllegalArgumentException("El préstamo no puede ser null");
+        }
+        String clave = tipoClave == RoutingKey.BORROWER
+                ? loan.getBorrowerName()
+                : loan.getBook().getIsbn();
+        
+        int h = clave.hashCode();
+        // Hash multiplicativo: los nombres parecidos ("Socio 1", "Socio 2") se reparten bien
+        int posicion = ((h * 0x9E3779B9) >>> desplazamiento) & ~1;
+        Entrada primera = cache.get(posicion);
+        if (primera != null && primera.clave.equals(clave)) {
+            return primera.politica.resolve(loan);
+        }
+        Entrada segunda = cache.get(posicion + 1);
+        if (segunda != null && segunda.clave.equals(clave)) {
+            return segunda.politica.resolve(loan);
+        }
+        
+        LoanPolicy resuelta = resolvedor.apply(clave);
+        if (resuelta == null) {
+            resuelta = porDefecto;
+        }
+        // La nueva entra primera y la que estaba pasa a segunda (la segunda se pierde)
+        if (primera != null) {
+            cache.set(posicion + 1, primera);
+        }
+        cache.set(posicion, new Entrada(clave, resuelta));
+        // Se guarda lo que dio el resolvedor, no su resolución para este préstamo: si
+        // también enruta (por otra clave), cada préstamo tiene que volver a pasar por ella
+        return resuelta.resolve(loan);
+    }
+    
+    @Override
+    public double calculateCost(Loan loan) {
+        return resolve(loan).calculateCost(loan);
+    }
+    
+    @Override
+    public long calculateCostMillis(Loan loan) {
+        return resolve(loan).calculateCostMillis(loan);
+    }
+    
+    /**
+     * Vacía la caché; hay que llamarlo cuando cambia lo que devuelve el resolvedor.
+     */
+    public void invalidate() {
+        for (int i = 0; i < cache.length(); i++) {
+            cache.set(i, null);
+        }
+    }
+    
+    public int getCacheCapacity() {
+        return cache.length();
+    }
+    
+    public RoutingKey getRoutingKey() {
+        return tipoClave;
+    }
+    
+    @Override
+    public String getPolicyName() {
+        return "Política por " + (tipoClave == RoutingKey.BORROWER ? "prestatario" : "ISBN");
+    }
+    
+    @Override
+    public String toString() {
+        return getPolicyName() + " (por defecto: " + porDefecto.getPolicyName()
+                + ", caché de " + cache.length() + ")";
+    }
+    
+    private static class Entrada {
+        final String clave;
+        final LoanPolicy politica;
+        
+        Entrada(String clave, LoanPolicy politica) {
+            this.clave = clave;
+            this.politica = politica;
+        }
+    }
+}
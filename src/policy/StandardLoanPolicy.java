@@ -1,18 +1,23 @@
 package policy;
 
 import library.Loan;
+import library.Money;
 
 /**
  * Política estándar de préstamos.
  * 
  * Tarifa: 1€/día los primeros 14 días, luego 1.50€/día extra.
  * Implementa LoanPolicy así que podemos intercambiarla por otra sin problemas (OCP).
+ * 
+ * En milésimas de euro son 1000/día y 500 de recargo, así que calculateCostMillis es exacto.
  */
 public class StandardLoanPolicy implements LoanPolicy {
     
     private static final double TARIFA_DIARIA = 1.00;
     private static final int DIAS_NORMALES = 14;
     private static final double RECARGO_EXTRA = 0.50;
+    private static final long TARIFA_DIARIA_MILLIS = 1000;
+    private static final long RECARGO_EXTRA_MILLIS = 500;
     
     @Override
     public double calculateCost(Loan loan) {
@@ -33,6 +38,55 @@ public class StandardLoanPolicy implements LoanPolicy {
         }
     }
     
+    @Override
+    public long calculateCostMillis(Loan loan) {
+        if (loan == null) {
+            throw new IllegalArgumentException("El préstamo no puede ser null");
+        }
+        
+        int dias = loan.getDaysLoaned();
+        int diasExtra = Math.max(dias - DIAS_NORMALES, 0);
+        return Money.add(Money.times(TARIFA_DIARIA_MILLIS, dias),
+                         Money.times(RECARGO_EXTRA_MILLIS, diasExtra));
+    }
+    
+    /**
+     * Versión por lotes sin ramas: los días por encima de 14 pagan el recargo.
+     * Da exactamente lo mismo que calculateCost porque todos los valores
+     * intermedios son enteros o medios, que el double representa sin error.
+     */
+    @Override
+    public void calculateCosts(int[] daysLoaned, double[] costs) {
+        if (daysLoaned == null || costs == null) {
+            throw new IllegalArgumentException("Los arrays no pueden ser null");
+        }
+        if (costs.length < daysLoaned.length) {
+            throw new IllegalArgumentException("El array de costes es más corto que el de días");
+        }
+        
+        for (int i = 0; i < daysLoaned.length; i++) {
+            int dias = daysLoaned[i];
+            int diasExtra = Math.max(dias - DIAS_NORMALES, 0);
+            costs[i] = dias * TARIFA_DIARIA + diasExtra * RECARGO_EXTRA;
+        }
+    }
+    
+    @Override
+    public void calculateCostsMillis(int[] daysLoaned, long[] costs) {
+        if (daysLoaned == null || costs == null) {
+            throw new IllegalArgumentException("Los arrays no pueden ser null");
+        }
+        if (costs.length < daysLoaned.length) {
+            throw new IllegalArgumentException("El array de costes es más corto que el de días");
+        }
+        
+        for (int i = 0; i < daysLoaned.length; i++) {
+            int dias = daysLoaned[i];
+            int diasExtra = Math.max(dias - DIAS_NORMALES, 0);
+            costs[i] = dias * TARIFA_DIARIA_MILLIS + diasExtra * RECARGO_EXTRA_MILLIS;
+        }
+    }
+    
     @Override
     public String getPolicyName() {
         return "Política Estándar";
@@ -0,0 +1,135 @@
+package policy;
+
+import library.Loan;
+import library.Money;
+
+/**
+ * Política generada a partir de unas TieredPricingRules.
+ * 
+ * Las reglas se compilan una vez al crearla: el coste de cada duración entre 1 y
+ * maxDias queda en una tabla, así calcular es una lectura de array sin recorrer
+ * tramos. Para préstamos más largos se suman los días que faltan tramo a tramo
+ * desde el último día de la tabla (puede haber tramos que empiecen después).
+ * Es inmutable, así que se puede compartir entre hilos sin más.
+ */
+public class TieredLoanPolicy implements LoanPolicy {
+    
+    private static final int DIAS_POR_DEFECTO = 366;
+    
+    private final TieredPricingRules reglas;
+    private final long[] costePorDias;
+    // Coste sin descuento ni tope del último día de la tabla y su tramo, para seguir desde ahí
+    private final long brutoUltimoDia;
+    private final int tramoUltimoDia;
+    
+    public TieredLoanPolicy(TieredPricingRules reglas) {
+        this(reglas, DIAS_POR_DEFECTO);
+    }
+    
+    public TieredLoanPolicy(TieredPricingRules reglas, int maxDias) {
+        if (reglas == null) {
+            throw new IllegalArgumentException("Las reglas no pueden ser null");
+        }
+        if (maxDias <= 0) {
+            throw new IllegalArgumentException("El máximo de días debe ser mayor que 0");
+        }
+        
+        this.reglas = reglas;
+        this.costePorDias = new long[maxDias + 1];
+        
+        long bruto = 0;
+        int tramo = 0;
+        for (int dias = 1; dias <= maxDias; dias++) {
+            while (tramo + 1 < reglas.getTierCount() && dias >= reglas.getTierStart(tramo + 1)) {
+                tramo++;
+            }
+            bruto = Money.add(bruto, reglas.getTierRateMillis(tramo));
+            costePorDias[dias] = ajustar(bruto, dias);
+        }
+        this.brutoUltimoDia = bruto;
+        this.tramoUltimoDia = tramo;
+    }
+    
+    // Descuento y tope sobre el coste bruto
+    private long ajustar(long bruto, int dias) {
+        long coste = bruto;
+        if (reglas.getDiscountPercent() > 0 && dias > reglas.getDiscountThreshold()) {
+            coste = Money.scale(coste, 100 - reglas.getDiscountPercent(), 100);
+        }
+        return Math.min(coste, reglas.getCapMillis());
+    }
+    
+    @Override
+    public double calculateCost(Loan loan) {
+        return Money.toEuros(calculateCostMillis(loan));
+    }
+    
+    @Override
+    public long calculateCostMillis(Loan loan) {
+        if (loan == null) {
+            throw new IllegalArgumentException("El préstamo no puede ser null");
+        }
+        return costeMillis(loan.getDaysLoaned());
+    }
+    
+    private long costeMillis(int dias) {
+        if (dias < costePorDias.length) {
+            return costePorDias[dias];
+        }
+        // Más allá de la tabla: cada tramo cobra los días suyos que queden entre el final
+        // de la tabla y dias; el último tramo llega hasta dias
+        long bruto = brutoUltimoDia;
+        long dia = costePorDias.length;
+        for (int tramo = tramoUltimoDia; dia <= dias; tramo++) {
+            long fin = tramo + 1 < reglas.getTierCount()
+                    ? Math.min(dias, reglas.getTierStart(tramo + 1) - 1)
+                    : dias;
+            if (fin >= dia) {
+                bruto = Money.add(bruto, Money.times(reglas.getTierRateMillis(tramo), fin - dia + 1));
+                dia = fin + 1;
+            }
+        }
+        return ajustar(bruto, dias);
+    }
+    
+    @Override
+    public void calculateCosts(int[] daysLoaned, double[] costs) {
+        if (daysLoaned == null || costs == null) {
+            throw new IllegalArgumentException("Los arrays no pueden ser null");
+        }
+        if (costs.length < daysLoaned.length) {
+            throw new IllegalArgumentException("El array de costes es más corto que el de días");
+        }
+        for (int i = 0; i < daysLoaned.length; i++) {
+            costs[i] = Money.toEuros(costeMillis(daysLoaned[i]));
+        }
+    }
+    
+    @Override
+    public void calculateCostsMillis(int[] daysLoaned, long[] costs) {
+        if (daysLoaned == null || costs == null) {
+            throw new IllegalArgumentException("Los arrays no pueden ser null");
+        }
+        if (costs.length < daysLoaned.length) {
+            throw new IllegalArgumentException("El array de costes es más corto que el de días");
+        }
+        for (int i = 0; i < daysLoaned.length; i++) {
+            costs[i] = costeMillis(daysLoaned[i]);
+        }
+    }
+    
+    public TieredPricingRules getRules() {
+        return reglas;
+    }
+    
+    @Override
+    public String getPolicyName() {
+        return reglas.getName();
+    }
+    
+    @Override
+    public String toString() {
+        return getPolicyName() + " (" + reglas.getTierCount() + " tramos, tabla hasta "
+                + (costePorDias.length - 1) + " días)";
+    }
+}
@@ -0,0 +1,174 @@
+package policy;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Reglas de una tarifa por tramos, leídas de un fichero .properties.
+ * 
+ * Formato (los importes en euros, los tramos numerados desde 1):
+ * <pre>
+ * nombre=Política Estándar
+ * tramo.1.desde=1
+ * tramo.1.tarifa=1.00
+ * tramo.2.desde=15
+ * tramo.2.tarifa=1.50
+ * descuento.umbral=7        # opcional: descuento si los días superan el umbral
+ * descuento.porcentaje=10
+ * tope=50.00                # opcional: coste máximo
+ * </pre>
+ * Cada día se cobra a la tarifa del tramo en el que cae. Sobre el total se aplica
+ * el descuento y después el tope. Esta clase solo guarda y valida las reglas;
+ * TieredLoanPolicy las compila a una tabla.
+ */
+public class TieredPricingRules {
+    
+    private final String nombre;
+    private final int[] desde;
+    private final long[] tarifaMillis;
+    private final int umbralDescuento;
+    private final long porcentajeDescuento;
+    private final long topeMillis;
+    
+    public TieredPricingRules(String nombre, int[] desde, long[] tarifaMillis,
+                              int umbralDescuento, long porcentajeDescuento, long topeMillis) {
+        if (nombre == null || nombre.trim().isEmpty()) {
+            throw new IllegalArgumentException("La tarifa debe tener nombre");
+        }
+        if (desde == null || tarifaMillis == null || desde.length == 0 || desde.length != tarifaMillis.length) {
+            throw new IllegalArgumentException("Hace falta al menos un tramo con su tarifa");
+        }
+        if (desde[0] != 1) {
+            throw new IllegalArgumentException("El primer tramo debe empezar en el día 1");
+        }
+        for (int i = 0; i < desde.length; i++) {
+            if (i > 0 && desde[i] <= desde[i - 1]) {
+                throw new IllegalArgumentException("Los tramos deben ir en orden creciente de días");
+            }
+            if (tarifaMillis[i] < 0) {
+                throw new IllegalArgumentException("La tarifa del tramo " + (i + 1) + " no puede ser negativa");
+            }
+        }
+        if (porcentajeDescuento < 0 || porcentajeDescuento > 100) {
+            throw new IllegalArgumentException("El descuento debe estar entre 0 y 100");
+        }
+        if (umbralDescuento < 0) {
+            throw new IllegalArgumentException("El umbral de descuento no puede ser negativo");
+        }
+        if (topeMillis <= 0) {
+            throw new IllegalArgumentException("El tope debe ser mayor que 0");
+        }
+        
+        this.nombre = nombre.trim();
+        this.desde = desde.clone();
+        this.tarifaMillis = tarifaMillis.clone();
+        this.umbralDescuento = umbralDescuento;
+        this.porcentajeDescuento = porcentajeDescuento;
+        this.topeMillis = topeMillis;
+    }
+    
+    public static TieredPricingRules load(Path fichero) throws IOException {
+        if (fichero == null) {
+            throw new IllegalArgumentException("El fichero no puede ser null");
+        }
+        Properties propiedades = new Properties();
+        try (Reader in = Files.newBufferedReader(fichero, StandardCharsets.UTF_8)) {
+            propiedades.load(in);
+        }
+        return parse(propiedades);
+    }
+    
+    public static TieredPricingRules parse(Properties p) {
+        if (p == null) {
+            throw new IllegalArgumentException("Las propiedades no pueden ser null");
+        }
+        
+        List<Integer> desde = new ArrayList<>();
+        List<Long> tarifas = new ArrayList<>();
+        for (int tramo = 1; p.getProperty("tramo." + tramo + ".desde") != null; tramo++) {
+            desde.add(entero(p, "tramo." + tramo + ".desde"));
+            tarifas.add(euros(p, "tramo." + tramo + ".tarifa"));
+        }
+        
+        int[] arrayDesde = new int[desde.size()];
+        long[] arrayTarifas = new long[tarifas.size()];
+        for (int i = 0; i < arrayDesde.length; i++) {
+            arrayDesde[i] = desde.get(i);
+            arrayTarifas[i] = tarifas.get(i);
+        }
+        
+        boolean conDescuento = p.getProperty("descuento.porcentaje") != null;
+        return new TieredPricingRules(
+                p.getProperty("nombre"),
+                arrayDesde,
+                arrayTarifas,
+                conDescuento ? entero(p, "descuento.umbral") : 0,
+                conDescuento ? entero(p, "descuento.porcentaje") : 0,
+                p.getProperty("tope") != null ? euros(p, "tope") : Long.MAX_VALUE);
+    }
+    
+    private static int entero(Properties p, String clave) {
+        String valor = obligatoria(p, clave);
+        try {
+            return Integer.parseInt(valor);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(clave + " no es un número entero: " + valor);
+        }
+    }
+    
+    // Importe en euros con hasta 3 decimales, pasado a milésimas sin pasar por double
+    private static long euros(Properties p, String clave) {
+        String valor = obligatoria(p, clave);
+        try {
+            return new BigDecimal(valor).movePointRight(3).longValueExact();
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new IllegalArgumentException(clave + " no es un importe válido (máximo 3 decimales): " + valor);
+        }
+    }
+    
+    private static String obligatoria(Properties p, String clave) {
+        String valor = p.getProperty(clave);
+        if (valor == null || valor.trim().isEmpty()) {
+            throw new IllegalArgumentException("Falta la propiedad " + clave);
+        }
+        return valor.trim();
+    }
+    
+    public String getName() {
+        return nombre;
+    }
+    
+    public int getTierCount() {
+        return desde.length;
+    }
+    
+    public int getTierStart(int tramo) {
+        return desde[tramo];
+    }
+    
+    public long getTierRateMillis(int tramo) {
+        return tarifaMillis[tramo];
+    }
+    
+    public int getDiscountThreshold() {
+        return umbralDescuento;
+    }
+    
+    public long getDiscountPercent() {
+        return porcentajeDescuento;
+    }
+    
+    /**
+     * Coste máximo en milésimas; Long.MAX_VALUE si no hay tope.
+     */
+    public long getCapMillis() {
+        return topeMillis;
+    }
+}
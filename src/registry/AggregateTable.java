@@ -0,0 +1,166 @@
+package registry;
+
+import library.Money;
+
+/**
+ * Mapa de String a (préstamos, días, coste) con direccionamiento abierto y valores primitivos.
+ *
+ * Las claves van en un String[] y los tres contadores de cada hueco seguidos en un
+ * long[] (3 por hueco), sin Map.Entry, Long ni Double. Se busca con sondeo lineal desde
+ * el hash de la clave; la tabla se dobla al pasar de la mitad de ocupación, así las
+ * búsquedas son O(1).
+ *
+ * No es thread-safe: AggregatingLoanRegistry la protege con su StampedLock. Al crecer
+ * se cambia la Tabla entera de una vez, para que un lector optimista vea siempre un
+ * par de arrays del mismo tamaño aunque luego tenga que repetir la lectura.
+ */
+final class AggregateTable {
+
+    static final int CUENTA = 0;
+    static final int DIAS = 1;
+    static final int COSTE = 2;
+    private static final int CAMPOS = 3;
+    private static final int CAPACIDAD_INICIAL = 64;
+
+    private Tabla tabla;
+
+    AggregateTable() {
+        this.tabla = new Tabla(CAPACIDAD_INICIAL);
+    }
+
+    /**
+     * Suma un préstamo a la clave, creándola si no estaba.
+     */
+    void add(String clave, int dias, long costeMillis) {
+        if (2 * (tabla.tamano + 1) > tabla.claves.length) {
+            crecer();
+        }
+        Tabla t = tabla;
+        int hueco = buscarHueco(t, clave);
+        if (t.claves[hueco] == null) {
+            t.claves[hueco] = clave;
+            t.tamano++;
+        }
+        int base = hueco * CAMPOS;
+        t.valores[base + CUENTA]++;
+        t.valores[base + DIAS] += dias;
+        t.valores[base + COSTE] = Money.add(t.valores[base + COSTE], costeMillis);
+    }
+
+    /**
+     * Un contador de la clave (CUENTA, DIAS o COSTE), o 0 si no está.
+     * Puede llamarse sin lock desde una lectura optimista: con arrays a medio cambiar
+     * devuelve un valor sin sentido, pero no falla, y quien llama lo descarta al validar.
+     */
+    long get(String clave, int campo) {
+        Tabla t = tabla;
+        String[] claves = t.claves;
+        long[] valores = t.valores;
+        int mascara = claves.length - 1;
+        int hueco = hash(clave) & mascara;
+        for (int intentos = 0; intentos < claves.length; intentos++) {
+            String actual = claves[hueco];
+            if (actual == null) {
+                return 0;
+            }
+            if (actual.equals(clave)) {
+                return valores[hueco * CAMPOS + campo];
+            }
+            hueco = (hueco + 1) & mascara;
+        }
+        return 0;
+    }
+
+    /**
+     * Los tres contadores de la clave en destino[0..2]; false si la clave no está.
+     */
+    boolean get(String clave, long[] destino) {
+        Tabla t = tabla;
+        String[] claves = t.claves;
+        long[] valores = t.valores;
+        int mascara = claves.length - 1;
+        int hueco = hash(clave) & mascara;
+        for (int intentos = 0; intentos < claves.length; intentos++) {
+            String actual = claves[hueco];
+            if (actual == null) {
+                break;
+            }
+            if (actual.equals(clave)) {
+                int base = hueco * CAMPOS;
+                destino[CUENTA] = valores[base + CUENTA];
+                destino[DIAS] = valores[base + DIAS];
+                destino[COSTE] = valores[base + COSTE];
+                return true;
+            }
+            hueco = (hueco + 1) & mascara;
+        }
+        destino[CUENTA] = 0;
+        destino[DIAS] = 0;
+        destino[COSTE] = 0;
+        return false;
+    }
+
+    int size() {
+        return tabla.tamano;
+    }
+
+    /**
+     * Recorre las claves ocupadas; quien llama debe tener el lock de lectura.
+     */
+    void forEach(Visitante visitante) {
+        Tabla t = tabla;
+        for (int i = 0; i < t.claves.length; i++) {
+            if (t.claves[i] != null) {
+                int base = i * CAMPOS;
+                visitante.visit(t.claves[i], t.valores[base + CUENTA], t.valores[base + DIAS],
+                                t.valores[base + COSTE]);
+            }
+        }
+    }
+
+    interface Visitante {
+        void visit(String clave, long cuenta, long dias, long costeMillis);
+    }
+
+    private void crecer() {
+        Tabla vieja = tabla;
+        Tabla nueva = new Tabla(vieja.claves.length * 2);
+        for (int i = 0; i < vieja.claves.length; i++) {
+            String clave = vieja.claves[i];
+            if (clave != null) {
+                int hueco = buscarHueco(nueva, clave);
+                nueva.claves[hueco] = clave;
+                System.arraycopy(vieja.valores, i * CAMPOS, nueva.valores, hueco * CAMPOS, CAMPOS);
+            }
+        }
+        nueva.tamano = vieja.tamano;
+        tabla = nueva;
+    }
+
+    // Hueco de la clave o el primero libre donde iría
+    private static int buscarHueco(Tabla t, String clave) {
+        int mascara = t.claves.length - 1;
+        int hueco = hash(clave) & mascara;
+        while (t.claves[hueco] != null && !t.claves[hueco].equals(clave)) {
+            hueco = (hueco + 1) & mascara;
+        }
+        return hueco;
+    }
+
+    // hashCode de String mezclado: con sondeo lineal, claves parecidas no deben caer juntas
+    private static int hash(String clave) {
+        int h = clave.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static final class Tabla {
+        final String[] claves;
+        final long[] valores;
+        int tamano;
+
+        Tabla(int capacidad) {
+            this.claves = new String[capacidad];
+            this.valores = new long[capacidad * CAMPOS];
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package registry;
+
+import isp.LoanRegistry;
+import library.Loan;
+import library.Money;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Registro que mantiene, mientras registra, los totales por ISBN y por prestatario:
+ * número de préstamos, días totales y coste total.
+ *
+ * Así "ingresos de este libro" o "días de este prestatario" se responden en O(1)
+ * en vez de recorrer todos los préstamos. Los totales van en dos AggregateTable
+ * (direccionamiento abierto con contadores long, sin HashMap ni Double).
+ *
+ * Opcionalmente pasa cada préstamo a otro LoanRegistry que sí los guarde; ese registro
+ * se llama con el lock de escritura, así que no hace falta que sea thread-safe.
+ *
+ * Concurrencia: las escrituras se serializan con un StampedLock. Las consultas de un
+ * valor hacen una lectura optimista (sin bloquear a nadie) y solo si coincidió con
+ * una escritura repiten con el lock de lectura. Las fotos completas (snapshotBy...)
+ * se sacan con el lock de lectura y son coherentes entre sí.
+ */
+public class AggregatingLoanRegistry implements LoanRegistry {
+
+    private final LoanRegistry registro;
+    private final StampedLock lock;
+    private final AggregateTable porIsbn;
+    private final AggregateTable porPrestatario;
+    private int total;
+    private long ingresos;
+
+    public AggregatingLoanRegistry() {
+        this(null);
+    }
+
+    /**
+     * El registro puede ser null si solo interesan los totales.
+     */
+    public AggregatingLoanRegistry(LoanRegistry registro) {
+        this.registro = registro;
+        this.lock = new StampedLock();
+        this.porIsbn = new AggregateTable();
+        this.porPrestatario = new AggregateTable();
+        this.total = 0;
+        this.ingresos = 0;
+    }
+
+    @Override
+    public void registerLoan(Loan loan) {
+        registerLoanWithCostMillis(loan, 0);
+    }
+
+    @Override
+    public void registerLoanWithCostMillis(Loan loan, long costeMillis) {
+        registrar(loan, costeMillis, null, false);
+    }
+
+    @Override
+    public void registerPricedLoan(Loan loan, long costeMillis, String policyName) {
+        registrar(loan, costeMillis, policyName, true);
+    }
+
+    private void registrar(Loan loan, long costeMillis, String policyName, boolean conPolitica) {
+        if (loan == null) {
+            throw new IllegalArgumentException("El préstamo no puede ser null");
+        }
+        long sello = lock.writeLock();
+        try {
+            // Primero el registro: si falla, los totales no cambian
+            if (registro != null) {
+                if (conPolitica) {
+                    registro.registerPricedLoan(loan, costeMillis, policyName);
+                } else {
+                    registro.registerLoanWithCostMillis(loan, costeMillis);
+                }
+            }
+            long nuevosIngresos = Money.add(ingresos, costeMillis);
+            porIsbn.add(loan.getBook().getIsbn(), loan.getDaysLoaned(), costeMillis);
+            porPrestatario.add(loan.getBorrowerName(), loan.getDaysLoaned(), costeMillis);
+            ingresos = nuevosIngresos;
+            total++;
+        } finally {
+            lock.unlockWrite(sello);
+        }
+    }
+
+    @Override
+    public int getTotalLoansProcessed() {
+        long sello = lock.tryOptimisticRead();
+        int valor = total;
+        if (!lock.validate(sello)) {
+            sello = lock.readLock();
+            try {
+                valor = total;
+            } finally {
+                lock.unlockRead(sello);
+            }
+        }
+        return valor;
+    }
+
+    @Override
+    public long getTotalRevenueMillis() {
+        long sello = lock.tryOptimisticRead();
+        long valor = ingresos;
+        if (!lock.validate(sello)) {
+            sello = lock.readLock();
+            try {
+                valor = ingresos;
+            } finally {
+                lock.unlockRead(sello);
+            }
+        }
+        return valor;
+    }
+
+    // === Consultas por ISBN ===
+
+    public long getLoanCountByIsbn(String isbn) {
+        return leer(porIsbn, isbn, AggregateTable.CUENTA);
+    }
+
+    public long getTotalDaysByIsbn(String isbn) {
+        return leer(porIsbn, isbn, AggregateTable.DIAS);
+    }
+
+    public long getRevenueByIsbnMillis(String isbn) {
+        return leer(porIsbn, isbn, AggregateTable.COSTE);
+    }
+
+    public Aggregate getByIsbn(String isbn) {
+        return leer(porIsbn, isbn);
+    }
+
+    // === Consultas por prestatario ===
+
+    public long getLoanCountByBorrower(String borrowerName) {
+        return leer(porPrestatario, borrowerName, AggregateTable.CUENTA);
+    }
+
+    public long getTotalDaysByBorrower(String borrowerName) {
+        return leer(porPrestatario, borrowerName, AggregateTable.DIAS);
+    }
+
+    public long getRevenueByBorrowerMillis(String borrowerName) {
+        return leer(porPrestatario, borrowerName, AggregateTable.COSTE);
+    }
+
+    public Aggregate getByBorrower(String borrowerName) {
+        return leer(porPrestatario, borrowerName);
+    }
+
+    public int getDistinctIsbns() {
+        return tamano(porIsbn);
+    }
+
+    public int getDistinctBorrowers() {
+        return tamano(porPrestatario);
+    }
+
+    /**
+     * Foto de los totales de todos los ISBN, coherente con un mismo instante.
+     */
+    public Map<String, Aggregate> snapshotByIsbn() {
+        return foto(porIsbn);
+    }
+
+    public Map<String, Aggregate> snapshotByBorrower() {
+        return foto(porPrestatario);
+    }
+
+    private long leer(AggregateTable tabla, String clave, int campo) {
+        if (clave == null) {
+            return 0;
+        }
+        long sello = lock.tryOptimisticRead();
+        long valor = tabla.get(clave, campo);
+        if (!lock.validate(sello)) {
+            sello = lock.readLock();
+            try {
+                valor = tabla.get(clave, campo);
+            } finally {
+                lock.unlockRead(sello);
+            }
+        }
+        return valor;
+    }
+
+    // Los tres valores se leen juntos, así la media de días sale de la misma foto
+    private Aggregate leer(AggregateTable tabla, String clave) {
+        if (clave == null) {
+            return new Aggregate(0, 0, 0);
+        }
+        long[] valores = new long[3];
+        long sello = lock.tryOptimisticRead();
+        tabla.get(clave, valores);
+        if (!lock.validate(sello)) {
+            sello = lock.readLock();
+            try {
+                tabla.get(clave, valores);
+            } finally {
+                lock.unlockRead(sello);
+            }
+        }
+        return new Aggregate(valores[AggregateTable.CUENTA], valores[AggregateTable.DIAS],
+                             valores[AggregateTable.COSTE]);
+    }
+
+    private int tamano(AggregateTable tabla) {
+        long sello = lock.tryOptimisticRead();
+        int valor = tabla.size();
+        if (!lock.validate(sello)) {
+            sello = lock.readLock();
+            try {
+                valor = tabla.size();
+            } finally {
+                lock.unlockRead(sello);
+            }
+        }
+        return valor;
+    }
+
+    private Map<String, Aggregate> foto(AggregateTable tabla) {
+        long sello = lock.readLock();
+        try {
+            Map<String, Aggregate> resultado = new HashMap<>(tabla.size() * 2);
+            tabla.forEach((clave, cuenta, dias, coste) -> resultado.put(clave, new Aggregate(cuenta, dias, coste)));
+            return resultado;
+        } finally {
+            lock.unlockRead(sello);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("AggregatingLoanRegistry[préstamos=%d, ISBN distintos=%d, prestatarios=%d]",
+                           getTotalLoansProcessed(), getDistinctIsbns(), getDistinctBorrowers());
+    }
+
+    /**
+     * Totales de un ISBN o de un prestatario en un momento dado.
+     */
+    public static class Aggregate {
+
+        private final long prestamos;
+        private final long dias;
+        private final long costeMillis;
+
+        Aggregate(long prestamos, long dias, long costeMillis) {
+            this.prestamos = prestamos;
+            this.dias = dias;
+            this.costeMillis = costeMillis;
+        }
+
+        public long getLoanCount() {
+            return prestamos;
+        }
+
+        public long getTotalDays() {
+            return dias;
+        }
+
+        public long getTotalCostMillis() {
+            return costeMillis;
+        }
+
+        public double getTotalCost() {
+            return Money.toEuros(costeMillis);
+        }
+
+        public double getAverageDays() {
+            return prestamos == 0 ? 0.0 : (double) dias / prestamos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Aggregate[préstamos=%d, días=%d, coste=%.2f€]",
+                               prestamos, dias, getTotalCost());
+        }
+    }
+}
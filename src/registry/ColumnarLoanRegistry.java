@@ -0,0 +1,154 @@
+package registry;
+
+import isp.LoanRegistry;
+import library.Loan;
+import library.Money;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registro de préstamos guardado por columnas.
+ * 
+ * En vez de una lista de objetos Loan, cada préstamo ocupa una posición en cuatro
+ * arrays primitivos: id del ISBN, id del prestatario, días y coste (en milésimas de euro). Los ISBN y los
+ * nombres se guardan una sola vez en un diccionario y las columnas solo llevan su id,
+ * así un préstamo ocupa unos 20 bytes y no genera objetos nuevos para el GC.
+ * 
+ * El total de préstamos y de ingresos se mantiene al registrar, así que consultarlos es O(1).
+ * No es thread-safe, igual que el ArrayList al que sustituye.
+ */
+public class ColumnarLoanRegistry implements LoanRegistry {
+    
+    private static final int CAPACIDAD_INICIAL = 16;
+    
+    private final Map<String, Integer> idsIsbn;
+    private final List<String> isbns;
+    private final Map<String, Integer> idsPrestatario;
+    private final List<String> prestatarios;
+    
+    private int[] columnaIsbn;
+    private int[] columnaPrestatario;
+    private int[] columnaDias;
+    private long[] columnaCoste;
+    private int tamano;
+    private long ingresos;
+    
+    public ColumnarLoanRegistry() {
+        this(CAPACIDAD_INICIAL);
+    }
+    
+    public ColumnarLoanRegistry(int capacidadInicial) {
+        if (capacidadInicial <= 0) {
+            throw new IllegalArgumentException("La capacidad inicial debe ser mayor que 0");
+        }
+        
+        this.idsIsbn = new HashMap<>();
+        this.isbns = new ArrayList<>();
+        this.idsPrestatario = new HashMap<>();
+        this.prestatarios = new ArrayList<>();
+        this.columnaIsbn = new int[capacidadInicial];
+        this.columnaPrestatario = new int[capacidadInicial];
+        this.columnaDias = new int[capacidadInicial];
+        this.columnaCoste = new long[capacidadInicial];
+        this.tamano = 0;
+        this.ingresos = 0;
+    }
+    
+    @Override
+    public void registerLoan(Loan loan) {
+        registerLoanWithCostMillis(loan, 0);
+    }
+    
+    @Override
+    public void registerLoanWithCostMillis(Loan loan, long costeMillis) {
+        if (loan == null) {
+            throw new IllegalArgumentException("El préstamo no puede ser null");
+        }
+        
+        if (tamano == columnaDias.length) {
+            crecer();
+        }
+        
+        columnaIsbn[tamano] = intern(loan.getBook().getIsbn(), idsIsbn, isbns);
+        columnaPrestatario[tamano] = intern(loan.getBorrowerName(), idsPrestatario, prestatarios);
+        columnaDias[tamano] = loan.getDaysLoaned();
+        columnaCoste[tamano] = costeMillis;
+        ingresos = Money.add(ingresos, costeMillis);
+        tamano++;
+    }
+    
+    @Override
+    public int getTotalLoansProcessed() {
+        return tamano;
+    }
+    
+    @Override
+    public long getTotalRevenueMillis() {
+        return ingresos;
+    }
+    
+    // === Acceso por posición ===
+    
+    public String getIsbn(int posicion) {
+        return isbns.get(columnaIsbn[comprobarPosicion(posicion)]);
+    }
+    
+    public String getBorrowerName(int posicion) {
+        return prestatarios.get(columnaPrestatario[comprobarPosicion(posicion)]);
+    }
+    
+    public int getDaysLoaned(int posicion) {
+        return columnaDias[comprobarPosicion(posicion)];
+    }
+    
+    public double getCost(int posicion) {
+        return Money.toEuros(getCostMillis(posicion));
+    }
+    
+    public long getCostMillis(int posicion) {
+        return columnaCoste[comprobarPosicion(posicion)];
+    }
+    
+    public int getDistinctIsbns() {
+        return isbns.size();
+    }
+    
+    public int getDistinctBorrowers() {
+        return prestatarios.size();
+    }
+    
+    private int comprobarPosicion(int posicion) {
+        if (posicion < 0 || posicion >= tamano) {
+            throw new IndexOutOfBoundsException("Posición fuera de rango: " + posicion);
+        }
+        return posicion;
+    }
+    
+    // Devuelve el id del valor en el diccionario, dándolo de alta si es nuevo
+    private static int intern(String valor, Map<String, Integer> ids, List<String> valores) {
+        Integer id = ids.get(valor);
+        if (id == null) {
+            id = valores.size();
+            ids.put(valor, id);
+            valores.add(valor);
+        }
+        return id;
+    }
+    
+    private void crecer() {
+        int nuevaCapacidad = columnaDias.length + (columnaDias.length >> 1) + 1;
+        columnaIsbn = Arrays.copyOf(columnaIsbn, nuevaCapacidad);
+        columnaPrestatario = Arrays.copyOf(columnaPrestatario, nuevaCapacidad);
+        columnaDias = Arrays.copyOf(columnaDias, nuevaCapacidad);
+        columnaCoste = Arrays.copyOf(columnaCoste, nuevaCapacidad);
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("ColumnarLoanRegistry[préstamos=%d, ISBN distintos=%d, prestatarios=%d]",
+                           tamano, isbns.size(), prestatarios.size());
+    }
+}
@@ -0,0 +1,75 @@
+package registry;
+
+import isp.LoanRegistry;
+import library.Loan;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registro de préstamos que se puede usar desde varios hilos a la vez.
+ * 
+ * No usa locks: los préstamos van a una ConcurrentLinkedQueue (inserción con CAS)
+ * y el número de préstamos y los ingresos van en contadores repartidos por celdas
+ * (LongAdder, los ingresos en milésimas de euro), así los hilos que registran a la vez no se pisan
+ * sobre la misma variable.
+ * 
+ * Los totales son exactos cuando no hay registros en curso. Mientras se registra,
+ * una lectura puede ver un préstamo contado pero aún sin sumar su coste.
+ */
+public class ConcurrentLoanRegistry implements LoanRegistry {
+    
+    private final Queue<Loan> prestamos;
+    private final LongAdder contador;
+    private final LongAdder ingresos;
+    
+    public ConcurrentLoanRegistry() {
+        this.prestamos = new ConcurrentLinkedQueue<>();
+        this.contador = new LongAdder();
+        this.ingresos = new LongAdder();
+    }
+    
+    @Override
+    public void registerLoan(Loan loan) {
+        registerLoanWithCostMillis(loan, 0);
+    }
+    
+    @Override
+    public void registerLoanWithCostMillis(Loan loan, long costeMillis) {
+        if (loan == null) {
+            throw new IllegalArgumentException("El préstamo no puede ser null");
+        }
+        prestamos.add(loan);
+        contador.increment();
+        ingresos.add(costeMillis);
+    }
+    
+    /**
+     * El contador es un long; a partir de Integer.MAX_VALUE préstamos devuelve
+     * Integer.MAX_VALUE en vez de dar la vuelta a negativo.
+     */
+    @Override
+    public int getTotalLoansProcessed() {
+        return (int) Math.min(contador.sum(), Integer.MAX_VALUE);
+    }
+    
+    @Override
+    public long getTotalRevenueMillis() {
+        return ingresos.sum();
+    }
+    
+    /**
+     * Recorre los préstamos en orden de llegada.
+     * El iterador no falla si otros hilos siguen registrando (es débilmente consistente).
+     */
+    public Iterator<Loan> loans() {
+        return prestamos.iterator();
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("ConcurrentLoanRegistry[préstamos=%d, ingresos=%.2f€]",
+                           getTotalLoansProcessed(), getTotalRevenue());
+    }
+}
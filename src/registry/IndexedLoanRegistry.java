@@ -0,0 +1,294 @@
+package registry;
+
+import isp.LoanRegistry;
+import library.Loan;
+import library.Money;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Registro de préstamos que se puede consultar por ISBN, por prestatario o por duración.
+ *
+ * Los préstamos se guardan en un array por orden de llegada y cada índice solo guarda
+ * posiciones (int) en ese array:
+ * - ISBN y prestatario: un mapa de la clave a su lista de posiciones.
+ * - Días: una lista de posiciones por cada duración de 1 a maxDiasIndexados, más una
+ *   lista común para los préstamos más largos.
+ *
+ * Las consultas no copian nada: devuelven un iterador (o un stream) que va leyendo las
+ * posiciones del índice según se recorre. Ven los préstamos registrados hasta el momento
+ * de la consulta. Por ISBN y prestatario salen en orden de llegada; por rango de días,
+ * ordenados por días y, dentro de cada duración, por llegada.
+ *
+ * No es thread-safe, igual que ColumnarLoanRegistry.
+ */
+public class IndexedLoanRegistry implements LoanRegistry {
+
+    private static final int CAPACIDAD_INICIAL = 16;
+    private static final int DIAS_POR_DEFECTO = 366;
+
+    private final Map<String, Posiciones> porIsbn;
+    private final Map<String, Posiciones> porPrestatario;
+    // porDias[d] para d de 1 a maxDias; porDias[0] guarda los préstamos más largos
+    private final Posiciones[] porDias;
+
+    private Loan[] prestamos;
+    private int tamano;
+    private long ingresos;
+
+    public IndexedLoanRegistry() {
+        this(DIAS_POR_DEFECTO);
+    }
+
+    public IndexedLoanRegistry(int maxDiasIndexados) {
+        if (maxDiasIndexados <= 0) {
+            throw new IllegalArgumentException("El máximo de días indexados debe ser mayor que 0");
+        }
+
+        this.porIsbn = new HashMap<>();
+        this.porPrestatario = new HashMap<>();
+        this.porDias = new Posiciones[maxDiasIndexados + 1];
+        this.prestamos = new Loan[CAPACIDAD_INICIAL];
+        this.tamano = 0;
+        this.ingresos = 0;
+    }
+
+    @Override
+    public void registerLoan(Loan loan) {
+        registerLoanWithCostMillis(loan, 0);
+    }
+
+    @Override
+    public void registerLoanWithCostMillis(Loan loan, long costeMillis) {
+        if (loan == null) {
+            throw new IllegalArgumentException("El préstamo no puede ser null");
+        }
+
+        if (tamano == prestamos.length) {
+            prestamos = Arrays.copyOf(prestamos, tamano + (tamano >> 1) + 1);
+        }
+        int posicion = tamano;
+        prestamos[posicion] = loan;
+
+        porIsbn.computeIfAbsent(loan.getBook().getIsbn(), k -> new Posiciones()).add(posicion);
+        porPrestatario.computeIfAbsent(loan.getBorrowerName(), k -> new Posiciones()).add(posicion);
+        int cubo = cuboDeDias(loan.getDaysLoaned());
+        if (porDias[cubo] == null) {
+            porDias[cubo] = new Posiciones();
+        }
+        porDias[cubo].add(posicion);
+
+        ingresos = Money.add(ingresos, costeMillis);
+        tamano++;
+    }
+
+    private int cuboDeDias(int dias) {
+        return dias < porDias.length ? dias : 0;
+    }
+
+    @Override
+    public int getTotalLoansProcessed() {
+        return tamano;
+    }
+
+    @Override
+    public long getTotalRevenueMillis() {
+        return ingresos;
+    }
+
+    // === Consultas ===
+
+    public Iterator<Loan> findByIsbn(String isbn) {
+        return iterador(porIsbn.get(isbn));
+    }
+
+    public Iterator<Loan> findByBorrower(String borrowerName) {
+        return iterador(porPrestatario.get(borrowerName));
+    }
+
+    /**
+     * Préstamos con entre minDias y maxDias días, ambos incluidos.
+     */
+    public Iterator<Loan> findByDaysRange(int minDias, int maxDias) {
+        if (minDias > maxDias) {
+            throw new IllegalArgumentException("El mínimo de días no puede ser mayor que el máximo");
+        }
+        return new IteradorRango(Math.max(minDias, 1), maxDias);
+    }
+
+    public Stream<Loan> streamByIsbn(String isbn) {
+        return stream(findByIsbn(isbn), countByIsbn(isbn));
+    }
+
+    public Stream<Loan> streamByBorrower(String borrowerName) {
+        return stream(findByBorrower(borrowerName), countByBorrower(borrowerName));
+    }
+
+    public Stream<Loan> streamByDaysRange(int minDias, int maxDias) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(
+                findByDaysRange(minDias, maxDias), Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    public int countByIsbn(String isbn) {
+        Posiciones posiciones = porIsbn.get(isbn);
+        return posiciones == null ? 0 : posiciones.tamano;
+    }
+
+    public int countByBorrower(String borrowerName) {
+        Posiciones posiciones = porPrestatario.get(borrowerName);
+        return posiciones == null ? 0 : posiciones.tamano;
+    }
+
+    public int getDistinctIsbns() {
+        return porIsbn.size();
+    }
+
+    public int getDistinctBorrowers() {
+        return porPrestatario.size();
+    }
+
+    private Iterator<Loan> iterador(Posiciones posiciones) {
+        if (posiciones == null) {
+            return new IteradorLista(new int[0], 0);
+        }
+        return new IteradorLista(posiciones.valores, posiciones.tamano);
+    }
+
+    private static Stream<Loan> stream(Iterator<Loan> iterador, int tamano) {
+        return StreamSupport.stream(Spliterators.spliterator(iterador, tamano,
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("IndexedLoanRegistry[préstamos=%d, ISBN distintos=%d, prestatarios=%d]",
+                           tamano, porIsbn.size(), porPrestatario.size());
+    }
+
+    /**
+     * Lista de posiciones que crece, sin Integer de por medio.
+     */
+    private static class Posiciones {
+        int[] valores = new int[4];
+        int tamano;
+
+        void add(int posicion) {
+            if (tamano == valores.length) {
+                valores = Arrays.copyOf(valores, tamano * 2);
+            }
+            valores[tamano++] = posicion;
+        }
+    }
+
+    // Se queda con el array y el tamaño del momento de la consulta: si luego crece, no lo ve
+    private class IteradorLista implements Iterator<Loan> {
+        private final int[] posiciones;
+        private final int fin;
+        private final Loan[] datos;
+        private int siguiente;
+
+        IteradorLista(int[] posiciones, int fin) {
+            this.posiciones = posiciones;
+            this.fin = fin;
+            this.datos = prestamos;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return siguiente < fin;
+        }
+
+        @Override
+        public Loan next() {
+            if (siguiente >= fin) {
+                throw new NoSuchElementException();
+            }
+            return datos[posiciones[siguiente++]];
+        }
+    }
+
+    // Recorre los cubos de días del rango y, si hace falta, los préstamos largos filtrando
+    private class IteradorRango implements Iterator<Loan> {
+        private final int minDias;
+        private final int maxDias;
+        private final int ultimoCubo;
+        private final int limite;
+        private final Loan[] datos;
+        private int cubo;
+        private int[] posiciones;
+        private int fin;
+        private int indice;
+        private Loan pendiente;
+
+        IteradorRango(int minDias, int maxDias) {
+            this.minDias = minDias;
+            this.maxDias = maxDias;
+            this.ultimoCubo = Math.min(maxDias, porDias.length - 1);
+            this.limite = tamano;
+            this.datos = prestamos;
+            this.cubo = minDias;
+            avanzar();
+        }
+
+        private void avanzar() {
+            pendiente = null;
+            while (true) {
+                if (posiciones != null && indice < fin) {
+                    int posicion = posiciones[indice++];
+                    if (posicion >= limite) {
+                        // Las posiciones van en orden: el resto del cubo es posterior a la consulta
+                        indice = fin;
+                        continue;
+                    }
+                    Loan loan = datos[posicion];
+                    if (cubo != 0 || (loan.getDaysLoaned() >= minDias && loan.getDaysLoaned() <= maxDias)) {
+                        pendiente = loan;
+                        return;
+                    }
+                    continue;
+                }
+                if (cubo == 0) {
+                    return;
+                }
+                if (cubo <= ultimoCubo) {
+                    abrir(porDias[cubo]);
+                    cubo++;
+                } else if (maxDias >= porDias.length) {
+                    // Después de los cubos normales, la lista de préstamos largos
+                    cubo = 0;
+                    abrir(porDias[0]);
+                } else {
+                    return;
+                }
+            }
+        }
+
+        private void abrir(Posiciones lista) {
+            posiciones = lista == null ? null : lista.valores;
+            fin = lista == null ? 0 : lista.tamano;
+            indice = 0;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return pendiente != null;
+        }
+
+        @Override
+        public Loan next() {
+            if (pendiente == null) {
+                throw new NoSuchElementException();
+            }
+            Loan loan = pendiente;
+            avanzar();
+            return loan;
+        }
+    }
+}
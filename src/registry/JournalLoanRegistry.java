@@ -0,0 +1,525 @@
+package registry;
+
+import codec.Utf8;
+import isp.LoanRegistry;
+import library.Loan;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+/**
+ * Registro de préstamos que sobrevive a un reinicio.
+ *
+ * Cada préstamo se añade al final de un diario binario (journal.log) en su directorio.
+ * Los registros se juntan en un buffer y se escriben de golpe con un FileChannel
+ * (group commit): un write y un fsync sirven para todos los préstamos acumulados.
+ * El fsync se hace cada registrosPorSync préstamos o cada intervaloSyncMillis, lo que
+ * llegue antes; lo registrado después del último fsync se puede perder si se cae la máquina.
+ *
+ * De vez en cuando se guarda una instantánea (snapshot.bin) con los totales y hasta
+ * dónde llega el diario. Al arrancar se leen la instantánea y los registros que hay
+ * detrás, así no hace falta releer el diario entero. Si el final del diario está
+ * a medio escribir (o no cuadra su CRC) se corta ahí.
+ *
+ * Cada registro es: longitud (int), coste en milésimas (long), días (int), título,
+ * autor, ISBN y prestatario (longitud en 2 bytes + UTF-8) y el CRC32C del cuerpo.
+ *
+ * Se puede usar desde varios hilos. Hay que cerrarlo con close() para no perder
+ * lo que quede en el buffer.
+ */
+public class JournalLoanRegistry implements LoanRegistry, AutoCloseable {
+
+    private static final String DIARIO = "journal.log";
+    private static final String INSTANTANEA = "snapshot.bin";
+    private static final String INSTANTANEA_TEMPORAL = "snapshot.tmp";
+
+    private static final int MAGICO_DIARIO = 0x4C4F414E;     // "LOAN"
+    private static final int MAGICO_INSTANTANEA = 0x534E4150; // "SNAP"
+    private static final int VERSION = 1;
+    private static final int CABECERA_DIARIO = 8;
+    private static final int TAMANO_INSTANTANEA = 4 + 4 + 8 + 8 + 8 + 4;
+
+    private static final int TAMANO_BUFFER = 1024 * 1024;
+    // Longitud máxima en caracteres para que el UTF-8 (3 bytes por carácter) quepa en 2 bytes
+    private static final int MAX_CARACTERES = 0xFFFF / 3;
+    // Cuerpo sin textos: coste + días + 4 longitudes
+    private static final int CUERPO_FIJO = 8 + 4 + 4 * 2;
+
+    private final Path directorio;
+    private final FileChannel canal;
+    private final int registrosPorSync;
+    private final long registrosPorSnapshot;
+    private final ScheduledExecutorService sincronizador;
+
+    // Protege el buffer que se está llenando, su CRC y los totales en memoria
+    private final Object cerrojoBuffer;
+    // Solo un hilo escribe en el fichero a la vez; siempre se coge antes que cerrojoBuffer
+    private final Object cerrojoEscritura;
+
+    private final CRC32C crc;
+    private ByteBuffer llenando;
+    private ByteBuffer escribiendo;
+    private int registrosEnBuffer;
+    private long ingresosEnBuffer;
+    private int pendientesDeSync;
+    private volatile long totalRegistros;
+    private volatile long totalIngresos;
+
+    // Lo que ya está en el fichero; solo se toca con cerrojoEscritura
+    private long registrosEscritos;
+    private long ingresosEscritos;
+    private boolean sinSincronizar;
+    private long registrosEnInstantanea;
+    // Lo que hay en "escribiendo"; si un write falló, sigue ahí pendiente de reintentar
+    private int registrosEscribiendo;
+    private long ingresosEscribiendo;
+    private boolean pendienteDeEscribir;
+
+    private final long registrosRecuperados;
+    private final long bytesDescartados;
+    private volatile boolean cerrado;
+
+    public JournalLoanRegistry(Path directorio) throws IOException {
+        this(directorio, 1024, 10, 100_000);
+    }
+
+    /**
+     * registrosPorSync = 0 desactiva el fsync por número de registros, e intervaloSyncMillis = 0
+     * el fsync periódico (entonces solo se sincroniza con sync() o close()).
+     * registrosPorSnapshot = 0 solo guarda instantánea al cerrar.
+     */
+    public JournalLoanRegistry(Path directorio, int registrosPorSync, long intervaloSyncMillis,
+                               long registrosPorSnapshot) throws IOException {
+        if (directorio == null) {
+            throw new IllegalArgumentException("El directorio no puede ser null");
+        }
+        if (registrosPorSync < 0) {
+            throw new IllegalArgumentException("Los registros por sync no pueden ser negativos");
+        }
+        if (intervaloSyncMillis < 0) {
+            throw new IllegalArgumentException("El intervalo de sync no puede ser negativo");
+        }
+        if (registrosPorSnapshot < 0) {
+            throw new IllegalArgumentException("Los registros por instantánea no pueden ser negativos");
+        }
+
+        this.directorio = directorio;
+        this.registrosPorSync = registrosPorSync;
+        this.registrosPorSnapshot = registrosPorSnapshot;
+        this.cerrojoBuffer = new Object();
+        this.cerrojoEscritura = new Object();
+        this.crc = new CRC32C();
+        this.llenando = ByteBuffer.allocateDirect(TAMANO_BUFFER);
+        this.escribiendo = ByteBuffer.allocateDirect(TAMANO_BUFFER);
+
+        Files.createDirectories(directorio);
+        this.canal = FileChannel.open(directorio.resolve(DIARIO), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            Recuperacion recuperacion = recuperar();
+            this.registrosEscritos = recuperacion.registros;
+            this.ingresosEscritos = recuperacion.ingresos;
+            this.registrosEnInstantanea = recuperacion.registrosEnInstantanea;
+            this.registrosRecuperados = recuperacion.registros;
+            this.bytesDescartados = recuperacion.descartados;
+            this.totalRegistros = recuperacion.registros;
+            this.totalIngresos = recuperacion.ingresos;
+        } catch (IOException | RuntimeException e) {
+            canal.close();
+            throw e;
+        }
+
+        if (intervaloSyncMillis > 0) {
+            this.sincronizador = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread hilo = new Thread(r, "diario-" + directorio.getFileName());
+                hilo.setDaemon(true);
+                return hilo;
+            });
+            this.sincronizador.scheduleWithFixedDelay(this::syncPeriodico,
+                    intervaloSyncMillis, intervaloSyncMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.sincronizador = null;
+        }
+    }
+
+    @Override
+    public void registerLoan(Loan loan) {
+        registerLoanWithCostMillis(loan, 0);
+    }
+
+    @Override
+    public void registerLoanWithCostMillis(Loan loan, long costeMillis) {
+        if (loan == null) {
+            throw new IllegalArgumentException("El préstamo no puede ser null");
+        }
+        String titulo = loan.getBook().getTitle();
+        String autor = loan.getBook().getAuthor();
+        String isbn = loan.getBook().getIsbn();
+        String prestatario = loan.getBorrowerName();
+        if (titulo.length() > MAX_CARACTERES || autor.length() > MAX_CARACTERES
+                || isbn.length() > MAX_CARACTERES || prestatario.length() > MAX_CARACTERES) {
+            throw new IllegalArgumentException("Los textos del préstamo no pueden pasar de "
+                    + MAX_CARACTERES + " caracteres");
+        }
+        // Tamaño en el peor caso (todo caracteres de 3 bytes), para no quedarnos sin sitio a medias
+        int maximo = 4 + CUERPO_FIJO + 4
+                + 3 * (titulo.length() + autor.length() + isbn.length() + prestatario.length());
+
+        boolean sincronizar;
+        while (true) {
+            synchronized (cerrojoBuffer) {
+                if (cerrado) {
+                    throw new IllegalStateException("El registro está cerrado");
+                }
+                if (llenando.remaining() >= maximo) {
+                    escribirRegistro(costeMillis, loan.getDaysLoaned(), titulo, autor, isbn, prestatario);
+                    registrosEnBuffer++;
+                    ingresosEnBuffer += costeMillis;
+                    totalRegistros++;
+                    totalIngresos += costeMillis;
+                    pendientesDeSync++;
+                    sincronizar = registrosPorSync > 0 && pendientesDeSync >= registrosPorSync;
+                    if (sincronizar) {
+                        pendientesDeSync = 0;
+                    }
+                    break;
+                }
+            }
+            // Buffer lleno: se vuelca al fichero y se reintenta
+            volcar(false);
+        }
+        if (sincronizar) {
+            volcar(true);
+        }
+    }
+
+    private void escribirRegistro(long coste, int dias, String titulo, String autor,
+                                  String isbn, String prestatario) {
+        int inicio = llenando.position();
+        llenando.position(inicio + 4);
+        int inicioCuerpo = llenando.position();
+        llenando.putLong(coste);
+        llenando.putInt(dias);
+        escribirTexto(titulo);
+        escribirTexto(autor);
+        escribirTexto(isbn);
+        escribirTexto(prestatario);
+        int fin = llenando.position();
+        llenando.putInt(inicio, fin - inicioCuerpo);
+
+        crc.reset();
+        llenando.position(inicioCuerpo);
+        llenando.limit(fin);
+        crc.update(llenando);
+        llenando.limit(llenando.capacity());
+        llenando.putInt((int) crc.getValue());
+    }
+
+    // UTF-8 directamente en el buffer: sin String.getBytes ni CharBuffer por campo
+    private void escribirTexto(String texto) {
+        int posicionLongitud = llenando.position();
+        llenando.position(posicionLongitud + 2);
+        Utf8.encode(texto, llenando);
+        int longitud = llenando.position() - posicionLongitud - 2;
+        llenando.putShort(posicionLongitud, (short) longitud);
+    }
+
+    /**
+     * Escribe en el fichero lo que haya en el buffer y, si se pide, hace fsync.
+     * Mientras un hilo escribe, los demás siguen llenando el otro buffer.
+     */
+    private void volcar(boolean forzar) {
+        synchronized (cerrojoEscritura) {
+            try {
+                // Lo que no se pudo escribir la última vez va antes que lo nuevo
+                if (pendienteDeEscribir) {
+                    escribirLote();
+                }
+                synchronized (cerrojoBuffer) {
+                    ByteBuffer lleno = llenando;
+                    llenando = escribiendo;
+                    escribiendo = lleno;
+                    registrosEscribiendo = registrosEnBuffer;
+                    ingresosEscribiendo = ingresosEnBuffer;
+                    registrosEnBuffer = 0;
+                    ingresosEnBuffer = 0;
+                }
+                escribiendo.flip();
+                escribirLote();
+
+                if (forzar && sinSincronizar) {
+                    canal.force(false);
+                    sinSincronizar = false;
+                    if (registrosPorSnapshot > 0
+                            && registrosEscritos - registrosEnInstantanea >= registrosPorSnapshot) {
+                        guardarInstantanea();
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error escribiendo el diario de préstamos", e);
+            }
+        }
+    }
+
+    // Escribe el buffer "escribiendo" entero. Si falla, quita del fichero lo que llegara a
+    // escribirse y deja el buffer como estaba, para reintentarlo en el siguiente volcado.
+    private void escribirLote() throws IOException {
+        long inicio = canal.position();
+        try {
+            while (escribiendo.hasRemaining()) {
+                canal.write(escribiendo);
+            }
+        } catch (IOException e) {
+            pendienteDeEscribir = true;
+            escribiendo.rewind();
+            try {
+                canal.truncate(inicio);
+                canal.position(inicio);
+            } catch (IOException otro) {
+                e.addSuppressed(otro);
+            }
+            throw e;
+        }
+        pendienteDeEscribir = false;
+        escribiendo.clear();
+        registrosEscritos += registrosEscribiendo;
+        ingresosEscritos += ingresosEscribiendo;
+        sinSincronizar |= registrosEscribiendo > 0;
+        registrosEscribiendo = 0;
+        ingresosEscribiendo = 0;
+    }
+
+    private void syncPeriodico() {
+        try {
+            volcar(true);
+        } catch (UncheckedIOException e) {
+            // Se vuelve a intentar en el siguiente intervalo; sync() y close() sí avisan del error
+        }
+    }
+
+    /**
+     * Escribe y sincroniza con el disco todo lo registrado hasta ahora.
+     */
+    public void sync() {
+        volcar(true);
+    }
+
+    // Se llama con cerrojoEscritura y el diario ya sincronizado
+    private void guardarInstantanea() throws IOException {
+        ByteBuffer datos = ByteBuffer.allocate(TAMANO_INSTANTANEA);
+        datos.putInt(MAGICO_INSTANTANEA);
+        datos.putInt(VERSION);
+        datos.putLong(registrosEscritos);
+        datos.putLong(ingresosEscritos);
+        datos.putLong(canal.position());
+        // CRC propio: el del campo es de escribirRegistro, que va con otro cerrojo
+        CRC32C crcInstantanea = new CRC32C();
+        crcInstantanea.update(datos.array(), 0, datos.position());
+        datos.putInt((int) crcInstantanea.getValue());
+        datos.flip();
+
+        // Se escribe aparte y se renombra, así nunca queda una instantánea a medias
+        Path temporal = directorio.resolve(INSTANTANEA_TEMPORAL);
+        try (FileChannel salida = FileChannel.open(temporal, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (datos.hasRemaining()) {
+                salida.write(datos);
+            }
+            salida.force(true);
+        }
+        Files.move(temporal, directorio.resolve(INSTANTANEA),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        registrosEnInstantanea = registrosEscritos;
+    }
+
+    // Lee la instantánea (si hay) y repasa el diario desde donde se quedó
+    private Recuperacion recuperar() throws IOException {
+        Recuperacion r = new Recuperacion();
+        long tamano = canal.size();
+        if (tamano < CABECERA_DIARIO) {
+            // Diario nuevo (o sin cabecera completa): se empieza de cero
+            ByteBuffer cabecera = ByteBuffer.allocate(CABECERA_DIARIO);
+            cabecera.putInt(MAGICO_DIARIO).putInt(VERSION).flip();
+            canal.truncate(0);
+            canal.write(cabecera, 0);
+            canal.force(true);
+            canal.position(CABECERA_DIARIO);
+            Files.deleteIfExists(directorio.resolve(INSTANTANEA));
+            return r;
+        }
+
+        ByteBuffer cabecera = ByteBuffer.allocate(CABECERA_DIARIO);
+        while (cabecera.hasRemaining()) {
+            canal.read(cabecera, cabecera.position());
+        }
+        if (cabecera.getInt(0) != MAGICO_DIARIO || cabecera.getInt(4) != VERSION) {
+            throw new IOException(directorio.resolve(DIARIO) + " no es un diario de préstamos");
+        }
+
+        long desde = CABECERA_DIARIO;
+        Path instantanea = directorio.resolve(INSTANTANEA);
+        if (Files.exists(instantanea)) {
+            ByteBuffer datos = ByteBuffer.wrap(Files.readAllBytes(instantanea));
+            if (instantaneaValida(datos, tamano)) {
+                r.registros = datos.getLong(8);
+                r.ingresos = datos.getLong(16);
+                desde = datos.getLong(24);
+                r.registrosEnInstantanea = r.registros;
+            }
+        }
+
+        long finValido = repasar(desde, tamano, r);
+        if (finValido < tamano) {
+            r.descartados = tamano - finValido;
+            canal.truncate(finValido);
+            canal.force(true);
+        }
+        canal.position(finValido);
+        return r;
+    }
+
+    private boolean instantaneaValida(ByteBuffer datos, long tamanoDiario) {
+        if (datos.capacity() != TAMANO_INSTANTANEA
+                || datos.getInt(0) != MAGICO_INSTANTANEA || datos.getInt(4) != VERSION) {
+            return false;
+        }
+        crc.reset();
+        crc.update(datos.array(), 0, TAMANO_INSTANTANEA - 4);
+        long posicion = datos.getLong(24);
+        return (int) crc.getValue() == datos.getInt(TAMANO_INSTANTANEA - 4)
+                && posicion >= CABECERA_DIARIO && posicion <= tamanoDiario;
+    }
+
+    // Suma los registros completos a partir de desde; devuelve dónde acaba el último válido
+    private long repasar(long desde, long tamano, Recuperacion r) throws IOException {
+        ByteBuffer lectura = ByteBuffer.allocateDirect(TAMANO_BUFFER);
+        long posicionLectura = desde;
+        long finValido = desde;
+
+        while (true) {
+            int leidos = canal.read(lectura, posicionLectura);
+            if (leidos > 0) {
+                posicionLectura += leidos;
+            }
+            lectura.flip();
+            int limite = lectura.limit();
+
+            while (lectura.remaining() >= 4) {
+                int inicio = lectura.position();
+                int longitud = lectura.getInt(inicio);
+                if (longitud < CUERPO_FIJO || longitud > TAMANO_BUFFER - 8) {
+                    return finValido;
+                }
+                if (lectura.remaining() < 4 + longitud + 4) {
+                    break;
+                }
+                crc.reset();
+                lectura.position(inicio + 4);
+                lectura.limit(inicio + 4 + longitud);
+                crc.update(lectura);
+                lectura.limit(limite);
+                if ((int) crc.getValue() != lectura.getInt(inicio + 4 + longitud)) {
+                    return finValido;
+                }
+                r.registros++;
+                r.ingresos += lectura.getLong(inicio + 4);
+                lectura.position(inicio + 4 + longitud + 4);
+                finValido += 4 + longitud + 4;
+            }
+
+            if (leidos <= 0 || posicionLectura >= tamano) {
+                // No queda más fichero: lo que sobre en el buffer es un registro a medias
+                return finValido;
+            }
+            lectura.compact();
+        }
+    }
+
+    /**
+     * A partir de Integer.MAX_VALUE registros (el diario puede tenerlos tras muchas
+     * ejecuciones) devuelve Integer.MAX_VALUE en vez de dar la vuelta a negativo.
+     */
+    @Override
+    public int getTotalLoansProcessed() {
+        return (int) Math.min(totalRegistros, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public long getTotalRevenueMillis() {
+        return totalIngresos;
+    }
+
+    /**
+     * Préstamos que se recuperaron del disco al abrir el registro.
+     */
+    public long getRecoveredLoans() {
+        return registrosRecuperados;
+    }
+
+    /**
+     * Bytes del final del diario que se descartaron al abrir por estar incompletos o dañados.
+     */
+    public long getDiscardedBytes() {
+        return bytesDescartados;
+    }
+
+    public Path getDirectory() {
+        return directorio;
+    }
+
+    /**
+     * Escribe lo pendiente, guarda una instantánea y cierra el fichero.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (cerrojoBuffer) {
+            if (cerrado) {
+                return;
+            }
+            cerrado = true;
+        }
+        if (sincronizador != null) {
+            sincronizador.shutdown();
+            try {
+                sincronizador.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            volcar(true);
+            synchronized (cerrojoEscritura) {
+                if (registrosEscritos != registrosEnInstantanea) {
+                    guardarInstantanea();
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            canal.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("JournalLoanRegistry[%s, préstamos=%d, ingresos=%.2f€]",
+                           directorio, getTotalLoansProcessed(), getTotalRevenue());
+    }
+
+    // Resultado de leer el disco al arrancar
+    private static class Recuperacion {
+        long registros;
+        long ingresos;
+        long registrosEnInstantanea;
+        long descartados;
+    }
+}
@@ -0,0 +1,85 @@
+package registry;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Contador de eventos por minuto para los últimos N minutos (ventanas fijas de un minuto).
+ * 
+ * Es un anillo de N huecos. Cada hueco guarda en un solo long el minuto al que
+ * pertenece (32 bits altos) y la cuenta (32 bits bajos), así que pasar a un minuto
+ * nuevo y contar es un único compareAndSet: no se pierden ni se mezclan cuentas
+ * de minutos distintos. Sumando varios huecos se obtiene una ventana deslizante.
+ */
+public class MinuteWindows {
+    
+    private static final long MILLIS_POR_MINUTO = 60_000;
+    private static final long MASCARA_CUENTA = 0xFFFF_FFFFL;
+    
+    private final AtomicLongArray huecos;
+    private final LongSupplier reloj;
+    
+    public MinuteWindows(int minutos) {
+        this(minutos, System::currentTimeMillis);
+    }
+    
+    /**
+     * El reloj devuelve milisegundos; se puede cambiar para pruebas.
+     */
+    public MinuteWindows(int minutos, LongSupplier reloj) {
+        if (minutos <= 0) {
+            throw new IllegalArgumentException("El número de minutos debe ser mayor que 0");
+        }
+        if (reloj == null) {
+            throw new IllegalArgumentException("El reloj no puede ser null");
+        }
+        this.huecos = new AtomicLongArray(minutos);
+        this.reloj = reloj;
+    }
+    
+    public void increment() {
+        long minuto = minutoActual();
+        int hueco = (int) (minuto % huecos.length());
+        while (true) {
+            long actual = huecos.get(hueco);
+            long nuevo = (actual >>> 32) == minuto
+                    ? actual + 1
+                    : (minuto << 32) | 1;
+            if (huecos.compareAndSet(hueco, actual, nuevo)) {
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Cuentas de los últimos n minutos; la posición 0 es el minuto en curso.
+     */
+    public long[] lastMinutes(int n) {
+        if (n <= 0 || n > huecos.length()) {
+            throw new IllegalArgumentException("Solo se guardan " + huecos.length() + " minutos");
+        }
+        long minuto = minutoActual();
+        long[] cuentas = new long[n];
+        for (int i = 0; i < n; i++) {
+            long buscado = minuto - i;
+            long valor = huecos.get((int) (buscado % huecos.length()));
+            cuentas[i] = (valor >>> 32) == buscado ? valor & MASCARA_CUENTA : 0;
+        }
+        return cuentas;
+    }
+    
+    /**
+     * Total de los últimos n minutos (ventana deslizante con resolución de un minuto).
+     */
+    public long sumLastMinutes(int n) {
+        long suma = 0;
+        for (long cuenta : lastMinutes(n)) {
+            suma += cuenta;
+        }
+        return suma;
+    }
+    
+    private long minutoActual() {
+        return reloj.getAsLong() / MILLIS_POR_MINUTO;
+    }
+}
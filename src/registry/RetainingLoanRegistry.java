@@ -0,0 +1,591 @@
+package registry;
+
+import codec.LoanCodec;
+import isp.LoanRegistry;
+import library.Loan;
+import library.Money;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Registro que guarda en memoria solo los préstamos más recientes y vuelca el resto a disco.
+ *
+ * Se le pone un tope por número de préstamos, por bytes (una estimación de lo que ocupan
+ * en memoria) o por antigüedad; cualquiera a 0 no limita. Al pasarse, los préstamos más
+ * antiguos salen de memoria y se escriben, en el formato de LoanCodec junto con su coste
+ * y su instante, en segmentos comprimidos con GZIP: directorio/retenidos-000001.seg.gz...
+ * La antigüedad se mira en cada registro y con evictExpired().
+ *
+ * Los volcados se juntan en un buffer de 64 KB y cada buffer lleno se añade al segmento
+ * como un miembro GZIP completo (un fichero GZIP puede tener varios seguidos). Así el
+ * segmento en disco siempre se puede leer entero, y si una escritura falla se corta el
+ * fichero donde estaba y el buffer se queda como estaba, sin perder nada.
+ *
+ * getTotalLoansProcessed() y los ingresos se llevan aparte, así que siguen siendo exactos
+ * aunque los préstamos ya no estén en memoria. Si no se puede volcar al registrar, el
+ * préstamo no se cuenta y se lanza UncheckedIOException.
+ *
+ * records() recorre todo en orden de registro: los segmentos (leyendo del disco según
+ * se avanza), lo que espera en el buffer y lo que sigue en memoria. close() vuelca lo
+ * que quede en memoria. Los segmentos que ya hubiera en el directorio no se leen; solo
+ * se sigue su numeración para no pisarlos.
+ *
+ * Es thread-safe con el lock del propio registro; el volcado a disco se hace dentro
+ * de ese lock, en el hilo que registra.
+ */
+public class RetainingLoanRegistry implements LoanRegistry, AutoCloseable {
+
+    private static final String PREFIJO = "retenidos-";
+    private static final String EXTENSION = ".seg.gz";
+    private static final int REGISTROS_POR_SEGMENTO = 64 * 1024;
+    private static final int TAMANO_BUFFER = 64 * 1024;
+    // Cabecera de cada registro: longitud, coste e instante
+    private static final int CABECERA_REGISTRO = 4 + 8 + 8;
+    // Loan, Book, Record y las cabeceras de los String, por préstamo
+    private static final long BYTES_FIJOS = 160;
+
+    private final Path directorio;
+    private final int maxPrestamos;
+    private final long maxBytes;
+    private final long maxEdadMillis;
+    private final LongSupplier reloj;
+    private final LoanCodec codec;
+
+    private final ArrayDeque<Record> enMemoria;
+    private final List<Path> segmentos;
+    // Bytes escritos de cada segmento, para que records() no lea lo que se añada después
+    private final List<Long> tamanos;
+    private long bytesEnMemoria;
+    private int total;
+    private long ingresos;
+    private long volcados;
+
+    // Registros ya fuera de memoria que esperan en el buffer a escribirse
+    private ByteBuffer buffer;
+    private int registrosEnBuffer;
+    private final Comprimido comprimido;
+
+    // Segmento abierto; solo entra en la lista cuando tiene algún miembro completo
+    private FileChannel segmento;
+    private Path rutaSegmento;
+    private int registrosEnSegmento;
+    private int numeroSegmento;
+    private boolean cerrado;
+
+    public RetainingLoanRegistry(Path directorio, int maxPrestamos) throws IOException {
+        this(directorio, maxPrestamos, 0, 0, System::currentTimeMillis);
+    }
+
+    /**
+     * maxPrestamos, maxBytes y maxEdadMillis a 0 no limitan; el reloj da milisegundos.
+     */
+    public RetainingLoanRegistry(Path directorio, int maxPrestamos, long maxBytes, long maxEdadMillis,
+                                 LongSupplier reloj) throws IOException {
+        if (directorio == null) {
+            throw new IllegalArgumentException("El directorio no puede ser null");
+        }
+        if (maxPrestamos < 0 || maxBytes < 0 || maxEdadMillis < 0) {
+            throw new IllegalArgumentException("Los límites no pueden ser negativos");
+        }
+        if (reloj == null) {
+            throw new IllegalArgumentException("El reloj no puede ser null");
+        }
+
+        this.directorio = directorio;
+        this.maxPrestamos = maxPrestamos;
+        this.maxBytes = maxBytes;
+        this.maxEdadMillis = maxEdadMillis;
+        this.reloj = reloj;
+        this.codec = new LoanCodec();
+        this.enMemoria = new ArrayDeque<>();
+        this.segmentos = new ArrayList<>();
+        this.tamanos = new ArrayList<>();
+        this.buffer = ByteBuffer.allocate(TAMANO_BUFFER);
+        this.comprimido = new Comprimido();
+
+        Files.createDirectories(directorio);
+        this.numeroSegmento = ultimoNumero();
+    }
+
+    @Override
+    public void registerLoan(Loan loan) {
+        registerLoanWithCostMillis(loan, 0);
+    }
+
+    @Override
+    public synchronized void registerLoanWithCostMillis(Loan loan, long costeMillis) {
+        if (loan == null) {
+            throw new IllegalArgumentException("El préstamo no puede ser null");
+        }
+        if (cerrado) {
+            throw new IllegalStateException("El registro está cerrado");
+        }
+        // Se comprueba ya que se podrá volcar, para no aceptar algo que luego no se pueda escribir
+        codec.encodedSize(loan);
+        long nuevosIngresos = Money.add(ingresos, costeMillis);
+        long ahora = reloj.getAsLong();
+        Record registro = new Record(loan, costeMillis, ahora);
+        enMemoria.addLast(registro);
+        bytesEnMemoria += estimarBytes(loan);
+
+        try {
+            expulsar(ahora);
+        } catch (IOException e) {
+            // Lo volcado antes del fallo ya está a salvo; el nuevo sigue al final y se quita
+            if (enMemoria.peekLast() == registro) {
+                enMemoria.pollLast();
+                bytesEnMemoria -= estimarBytes(loan);
+            }
+            throw new UncheckedIOException("Error volcando préstamos a " + directorio, e);
+        }
+        ingresos = nuevosIngresos;
+        total++;
+    }
+
+    /**
+     * Vuelca los préstamos que ya han superado la antigüedad máxima.
+     */
+    public synchronized void evictExpired() throws IOException {
+        if (!cerrado) {
+            expulsar(reloj.getAsLong());
+        }
+    }
+
+    // Saca de memoria los más antiguos mientras se pase de algún límite.
+    // Cada uno sale de la cola solo después de quedar en el buffer de volcado.
+    private void expulsar(long ahora) throws IOException {
+        while (!enMemoria.isEmpty() && fueraDeLimites(enMemoria.peekFirst(), ahora)) {
+            volcar(enMemoria.peekFirst());
+            Record registro = enMemoria.pollFirst();
+            bytesEnMemoria -= estimarBytes(registro.loan);
+        }
+    }
+
+    private boolean fueraDeLimites(Record masAntiguo, long ahora) {
+        return (maxPrestamos > 0 && enMemoria.size() > maxPrestamos)
+                || (maxBytes > 0 && bytesEnMemoria > maxBytes)
+                || (maxEdadMillis > 0 && ahora - masAntiguo.instante > maxEdadMillis);
+    }
+
+    // Cuatro String (dos bytes por carácter como mucho) más los objetos
+    private static long estimarBytes(Loan loan) {
+        return BYTES_FIJOS + 2L * (loan.getBorrowerName().length()
+                + loan.getBook().getTitle().length()
+                + loan.getBook().getAuthor().length()
+                + loan.getBook().getIsbn().length());
+    }
+
+    // Registro en el segmento: [longitud int][coste long][instante long][préstamo LoanCodec]
+    private void volcar(Record registro) throws IOException {
+        int tamano = CABECERA_REGISTRO + codec.encodedSize(registro.loan);
+        if (buffer.remaining() < tamano) {
+            escribirBuffer();
+            if (buffer.capacity() < tamano) {
+                // Un préstamo enorme: se agranda el buffer (ya está vacío)
+                buffer = ByteBuffer.allocate(Math.max(tamano, buffer.capacity() * 2));
+            }
+        }
+        int inicio = buffer.position();
+        try {
+            buffer.position(inicio + 4);
+            buffer.putLong(registro.costeMillis);
+            buffer.putLong(registro.instante);
+            codec.encode(registro.loan, buffer);
+            buffer.putInt(inicio, buffer.position() - inicio - 4);
+        } catch (RuntimeException e) {
+            buffer.position(inicio);
+            throw e;
+        }
+        registrosEnBuffer++;
+        volcados++;
+    }
+
+    // Comprime el buffer como un miembro GZIP y lo añade al segmento. Si falla, el fichero
+    // se corta donde estaba y el buffer no cambia, así se puede reintentar
+    private void escribirBuffer() throws IOException {
+        if (registrosEnBuffer == 0) {
+            return;
+        }
+        comprimido.reset();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(comprimido, TAMANO_BUFFER)) {
+            gzip.write(buffer.array(), 0, buffer.position());
+        }
+        if (segmento == null) {
+            abrirSegmento();
+        }
+
+        long inicio = segmento.position();
+        ByteBuffer datos = comprimido.comoBuffer();
+        try {
+            while (datos.hasRemaining()) {
+                segmento.write(datos);
+            }
+        } catch (IOException e) {
+            try {
+                segmento.truncate(inicio);
+                segmento.position(inicio);
+            } catch (IOException otro) {
+                e.addSuppressed(otro);
+            }
+            throw e;
+        }
+
+        if (segmentos.isEmpty() || !segmentos.get(segmentos.size() - 1).equals(rutaSegmento)) {
+            segmentos.add(rutaSegmento);
+            tamanos.add(0L);
+        }
+        tamanos.set(tamanos.size() - 1, segmento.position());
+        registrosEnSegmento += registrosEnBuffer;
+        registrosEnBuffer = 0;
+        buffer.clear();
+        if (registrosEnSegmento >= REGISTROS_POR_SEGMENTO) {
+            cerrarSegmento();
+        }
+    }
+
+    private void abrirSegmento() throws IOException {
+        Path ruta = directorio.resolve(
+                String.format(Locale.ROOT, "%s%06d%s", PREFIJO, numeroSegmento + 1, EXTENSION));
+        segmento = FileChannel.open(ruta, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        numeroSegmento++;
+        rutaSegmento = ruta;
+        registrosEnSegmento = 0;
+    }
+
+    private void cerrarSegmento() throws IOException {
+        if (segmento == null) {
+            return;
+        }
+        FileChannel cerrando = segmento;
+        Path ruta = rutaSegmento;
+        segmento = null;
+        rutaSegmento = null;
+        cerrando.close();
+        if (!segmentos.contains(ruta)) {
+            // No llegó a escribirse ningún miembro
+            Files.deleteIfExists(ruta);
+        }
+    }
+
+    // Mayor número de segmento que ya haya en el directorio
+    private int ultimoNumero() throws IOException {
+        int mayor = 0;
+        try (Stream<Path> ficheros = Files.list(directorio)) {
+            for (Path ruta : (Iterable<Path>) ficheros::iterator) {
+                String nombre = ruta.getFileName().toString();
+                if (nombre.startsWith(PREFIJO) && nombre.endsWith(EXTENSION)) {
+                    try {
+                        mayor = Math.max(mayor, Integer.parseInt(
+                                nombre.substring(PREFIJO.length(), nombre.length() - EXTENSION.length())));
+                    } catch (NumberFormatException e) {
+                        // No es uno de los nuestros
+                    }
+                }
+            }
+        }
+        return mayor;
+    }
+
+    @Override
+    public synchronized int getTotalLoansProcessed() {
+        return total;
+    }
+
+    @Override
+    public synchronized long getTotalRevenueMillis() {
+        return ingresos;
+    }
+
+    public synchronized int getRetainedCount() {
+        return enMemoria.size();
+    }
+
+    /**
+     * Estimación de lo que ocupan en memoria los préstamos retenidos (sin el buffer de volcado).
+     */
+    public synchronized long getRetainedBytes() {
+        return bytesEnMemoria;
+    }
+
+    /**
+     * Préstamos que han salido de memoria, estén ya en disco o esperando en el buffer.
+     */
+    public synchronized long getSpilledCount() {
+        return volcados;
+    }
+
+    public synchronized List<Path> getSegments() {
+        return new ArrayList<>(segmentos);
+    }
+
+    /**
+     * Todos los préstamos registrados, en orden: los volcados se leen de disco según se avanza.
+     * Ve lo registrado hasta la llamada. Hay que cerrarlo si no se recorre hasta el final.
+     */
+    public synchronized RecordIterator records() {
+        long[] limites = new long[tamanos.size()];
+        for (int i = 0; i < limites.length; i++) {
+            limites[i] = tamanos.get(i);
+        }
+        return new RecordIterator(new ArrayList<>(segmentos), limites,
+                Arrays.copyOf(buffer.array(), buffer.position()), enMemoria.toArray(new Record[0]));
+    }
+
+    /**
+     * Vuelca a disco los préstamos que siguen en memoria y cierra el segmento abierto.
+     * Si falla, el registro sigue abierto y con todo lo que tenía, y se puede reintentar.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (cerrado) {
+            return;
+        }
+        while (!enMemoria.isEmpty()) {
+            volcar(enMemoria.peekFirst());
+            Record registro = enMemoria.pollFirst();
+            bytesEnMemoria -= estimarBytes(registro.loan);
+        }
+        escribirBuffer();
+        cerrarSegmento();
+        cerrado = true;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("RetainingLoanRegistry[préstamos=%d, en memoria=%d, volcados=%d, segmentos=%d]",
+                           total, enMemoria.size(), volcados, segmentos.size());
+    }
+
+    /**
+     * Un préstamo registrado, con su coste y el instante (ms del reloj) en que se registró.
+     */
+    public static class Record {
+
+        private final Loan loan;
+        private final long costeMillis;
+        private final long instante;
+
+        Record(Loan loan, long costeMillis, long instante) {
+            this.loan = loan;
+            this.costeMillis = costeMillis;
+            this.instante = instante;
+        }
+
+        public Loan getLoan() {
+            return loan;
+        }
+
+        public long getCostMillis() {
+            return costeMillis;
+        }
+
+        public double getCost() {
+            return Money.toEuros(costeMillis);
+        }
+
+        public long getRegisteredAt() {
+            return instante;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Record[%s, coste=%.2f€, instante=%d]", loan, getCost(), instante);
+        }
+    }
+
+    /**
+     * Recorre los segmentos de uno en uno, después el buffer de volcado y por último los
+     * préstamos en memoria. Solo tiene abierto un segmento a la vez; close() lo cierra si
+     * se deja a medias.
+     */
+    public static class RecordIterator implements Iterator<Record>, AutoCloseable {
+
+        private final List<Path> segmentos;
+        private final long[] limites;
+        private final byte[] pendientes;
+        private final Record[] enMemoria;
+        private final LoanCodec codec;
+        private int siguienteSegmento;
+        private boolean pendientesLeidos;
+        private int siguienteEnMemoria;
+        private DataInputStream lectura;
+        private byte[] bytes;
+        private Record pendiente;
+
+        RecordIterator(List<Path> segmentos, long[] limites, byte[] pendientes, Record[] enMemoria) {
+            this.segmentos = segmentos;
+            this.limites = limites;
+            this.pendientes = pendientes;
+            this.enMemoria = enMemoria;
+            this.codec = new LoanCodec();
+            this.bytes = new byte[256];
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (pendiente == null) {
+                pendiente = avanzar();
+            }
+            return pendiente != null;
+        }
+
+        @Override
+        public Record next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Record registro = pendiente;
+            pendiente = null;
+            return registro;
+        }
+
+        private Record avanzar() {
+            try {
+                while (true) {
+                    if (lectura != null) {
+                        Record registro = leerRegistro();
+                        if (registro != null) {
+                            return registro;
+                        }
+                        lectura.close();
+                        lectura = null;
+                    }
+                    if (siguienteSegmento < segmentos.size()) {
+                        // Solo hasta donde llegaba al crear el iterador: lo añadido después ya está aquí
+                        InputStream fichero = new Limitado(Files.newInputStream(segmentos.get(siguienteSegmento)),
+                                                           limites[siguienteSegmento]);
+                        siguienteSegmento++;
+                        lectura = new DataInputStream(new BufferedInputStream(
+                                new GZIPInputStream(fichero, TAMANO_BUFFER), TAMANO_BUFFER));
+                        continue;
+                    }
+                    if (!pendientesLeidos) {
+                        pendientesLeidos = true;
+                        lectura = new DataInputStream(new ByteArrayInputStream(pendientes));
+                        continue;
+                    }
+                    return siguienteEnMemoria < enMemoria.length ? enMemoria[siguienteEnMemoria++] : null;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error leyendo un segmento de préstamos", e);
+            }
+        }
+
+        // null al llegar al final del segmento
+        private Record leerRegistro() throws IOException {
+            int longitud;
+            try {
+                longitud = lectura.readInt();
+            } catch (EOFException e) {
+                return null;
+            }
+            if (longitud > bytes.length) {
+                bytes = new byte[Math.max(longitud, bytes.length * 2)];
+            }
+            lectura.readFully(bytes, 0, longitud);
+            ByteBuffer registro = ByteBuffer.wrap(bytes, 0, longitud);
+            long coste = registro.getLong();
+            long instante = registro.getLong();
+            return new Record(codec.decode(registro), coste, instante);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (lectura != null) {
+                lectura.close();
+                lectura = null;
+            }
+            siguienteSegmento = segmentos.size();
+            pendientesLeidos = true;
+            siguienteEnMemoria = enMemoria.length;
+        }
+    }
+
+    // Lee como mucho "restantes" bytes. available() tiene que ser exacto: GZIPInputStream
+    // lo mira para saber si detrás de un miembro viene otro
+    private static final class Limitado extends FilterInputStream {
+
+        private long restantes;
+
+        Limitado(InputStream in, long limite) {
+            super(in);
+            this.restantes = limite;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (restantes <= 0) {
+                return -1;
+            }
+            int b = in.read();
+            if (b >= 0) {
+                restantes--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (restantes <= 0) {
+                return -1;
+            }
+            int leidos = in.read(b, off, (int) Math.min(len, restantes));
+            if (leidos > 0) {
+                restantes -= leidos;
+            }
+            return leidos;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long saltados = in.skip(Math.min(n, restantes));
+            restantes -= saltados;
+            return saltados;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(restantes, Integer.MAX_VALUE);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+
+    // Salida comprimida reutilizable, que se puede escribir sin copiarla
+    private static final class Comprimido extends ByteArrayOutputStream {
+
+        Comprimido() {
+            super(TAMANO_BUFFER);
+        }
+
+        ByteBuffer comoBuffer() {
+            return ByteBuffer.wrap(buf, 0, count);
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package registry;
+
+import isp.LoanRegistry;
+import library.Loan;
+import library.Money;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Registro que no guarda los préstamos, solo estadísticas que se actualizan al vuelo.
+ * 
+ * Cada registro actualiza en O(1): histogramas de días y de coste (para p50/p95/p99),
+ * ingresos por política, un top de libros por ISBN y préstamos por minuto.
+ * Todo es thread-safe y sin locks en el camino normal, así que se puede pedir un
+ * snapshot() en cualquier momento sin parar los registros.
+ */
+public class StreamingStatsRegistry implements LoanRegistry {
+    
+    private static final String POLITICA_DESCONOCIDA = "(sin política)";
+    private static final int TOP_POR_DEFECTO = 10;
+    private static final int MINUTOS_POR_DEFECTO = 60;
+    
+    private final LongAdder contador;
+    private final LongAdder ingresos;
+    private final LogLinearHistogram dias;
+    private final LogLinearHistogram costes;
+    private final Map<String, LongAdder> ingresosPorPolitica;
+    private final TopKSketch topLibros;
+    private final MinuteWindows porMinuto;
+    private final int minutosGuardados;
+    
+    public StreamingStatsRegistry() {
+        this(TOP_POR_DEFECTO, MINUTOS_POR_DEFECTO, System::currentTimeMillis);
+    }
+    
+    public StreamingStatsRegistry(int topLibros, int minutosGuardados, LongSupplier reloj) {
+        this.contador = new LongAdder();
+        this.ingresos = new LongAdder();
+        this.dias = new LogLinearHistogram();
+        this.costes = new LogLinearHistogram();
+        this.ingresosPorPolitica = new ConcurrentHashMap<>();
+        this.topLibros = new TopKSketch(topLibros);
+        this.porMinuto = new MinuteWindows(minutosGuardados, reloj);
+        this.minutosGuardados = minutosGuardados;
+    }
+    
+    @Override
+    public void registerLoan(Loan loan) {
+        registerPricedLoan(loan, 0, POLITICA_DESCONOCIDA);
+    }
+    
+    @Override
+    public void registerLoanWithCostMillis(Loan loan, long costeMillis) {
+        registerPricedLoan(loan, costeMillis, POLITICA_DESCONOCIDA);
+    }
+    
+    @Override
+    public void registerPricedLoan(Loan loan, long costeMillis, String policyName) {
+        if (loan == null) {
+            throw new IllegalArgumentException("El préstamo no puede ser null");
+        }
+        if (costeMillis < 0) {
+            throw new IllegalArgumentException("El coste no puede ser negativo");
+        }
+        String politica = policyName == null ? POLITICA_DESCONOCIDA : policyName;
+        
+        contador.increment();
+        ingresos.add(costeMillis);
+        dias.record(loan.getDaysLoaned());
+        costes.record(costeMillis);
+        ingresosPorPolitica.computeIfAbsent(politica, p -> new LongAdder()).add(costeMillis);
+        topLibros.add(loan.getBook().getIsbn());
+        porMinuto.increment();
+    }
+    
+    /**
+     * A partir de Integer.MAX_VALUE préstamos devuelve Integer.MAX_VALUE en vez de
+     * dar la vuelta a negativo.
+     */
+    @Override
+    public int getTotalLoansProcessed() {
+        return (int) Math.min(contador.sum(), Integer.MAX_VALUE);
+    }
+    
+    @Override
+    public long getTotalRevenueMillis() {
+        return ingresos.sum();
+    }
+    
+    public LogLinearHistogram getDaysHistogram() {
+        return dias;
+    }
+    
+    public LogLinearHistogram getCostHistogram() {
+        return costes;
+    }
+    
+    /**
+     * Foto de todas las estadísticas en este momento.
+     */
+    public Snapshot snapshot() {
+        Map<String, Long> porPolitica = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> e : ingresosPorPolitica.entrySet()) {
+            porPolitica.put(e.getKey(), e.getValue().sum());
+        }
+        return new Snapshot(this, porPolitica);
+    }
+    
+    /**
+     * Estadísticas congeladas en un momento dado. Los importes van en milésimas de euro.
+     */
+    public static class Snapshot {
+        
+        private final long prestamos;
+        private final long ingresosMillis;
+        private final long[] percentilesDias;
+        private final long[] percentilesCoste;
+        private final Map<String, Long> ingresosPorPolitica;
+        private final List<TopKSketch.Entry> topLibros;
+        private final long[] porMinuto;
+        
+        private Snapshot(StreamingStatsRegistry r, Map<String, Long> ingresosPorPolitica) {
+            this.prestamos = r.contador.sum();
+            this.ingresosMillis = r.ingresos.sum();
+            this.percentilesDias = percentiles(r.dias);
+            this.percentilesCoste = percentiles(r.costes);
+            this.ingresosPorPolitica = Collections.unmodifiableMap(ingresosPorPolitica);
+            this.topLibros = Collections.unmodifiableList(r.topLibros.top());
+            this.porMinuto = r.porMinuto.lastMinutes(r.minutosGuardados);
+        }
+        
+        private static long[] percentiles(LogLinearHistogram h) {
+            return new long[] {h.getPercentile(50), h.getPercentile(95), h.getPercentile(99)};
+        }
+        
+        public long getLoans() {
+            return prestamos;
+        }
+        
+        public long getRevenueMillis() {
+            return ingresosMillis;
+        }
+        
+        public long getDaysP50() {
+            return percentilesDias[0];
+        }
+        
+        public long getDaysP95() {
+            return percentilesDias[1];
+        }
+        
+        public long getDaysP99() {
+            return percentilesDias[2];
+        }
+        
+        public long getCostMillisP50() {
+            return percentilesCoste[0];
+        }
+        
+        public long getCostMillisP95() {
+            return percentilesCoste[1];
+        }
+        
+        public long getCostMillisP99() {
+            return percentilesCoste[2];
+        }
+        
+        public Map<String, Long> getRevenueMillisByPolicy() {
+            return ingresosPorPolitica;
+        }
+        
+        public List<TopKSketch.Entry> getTopBooks() {
+            return topLibros;
+        }
+        
+        /**
+         * Préstamos por minuto en los últimos minutos; la posición 0 es el minuto en curso.
+         */
+        public long[] getLoansPerMinute() {
+            return porMinuto.clone();
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("Préstamos: %d | Ingresos: %.2f€%n"
+                    + "Días p50/p95/p99: %d/%d/%d%n"
+                    + "Coste p50/p95/p99: %.2f€/%.2f€/%.2f€%n"
+                    + "Ingresos por política (milésimas): %s%n"
+                    + "Top libros: %s%n"
+                    + "Por minuto: %s",
+                    prestamos, Money.toEuros(ingresosMillis),
+                    getDaysP50(), getDaysP95(), getDaysP99(),
+                    Money.toEuros(getCostMillisP50()), Money.toEuros(getCostMillisP95()),
+                    Money.toEuros(getCostMillisP99()),
+                    ingresosPorPolitica, topLibros, Arrays.toString(porMinuto));
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package registry;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Los K elementos más frecuentes de un flujo, con memoria fija.
+ * 
+ * Las frecuencias se estiman con un count-min sketch (varias filas de contadores
+ * indexadas con hashes distintos; la estimación es el mínimo y nunca se queda corta).
+ * Aparte se guarda la lista de los K candidatos con mayor estimación. Registrar
+ * cuesta unos pocos incrementos atómicos; un elemento que ya está en la lista (los
+ * más frecuentes, justo los que más se registran) sube su estimación con un CAS, sin
+ * lock. Solo se toma el lock cuando la lista puede cambiar: un elemento nuevo que
+ * supera al último, algo que una vez arrancado el flujo pasa poco.
+ */
+public class TopKSketch {
+    
+    private static final int FILAS = 4;
+    
+    private final int k;
+    private final int anchura;
+    private final AtomicLongArray contadores;
+    // Los que están en la lista, para la vía rápida; solo se cambia con el lock
+    private final ConcurrentHashMap<String, Candidato> miembros;
+    private final Candidato[] lista;
+    private volatile long minimoDeLaLista;
+    private int tamanoLista;
+    
+    public TopKSketch(int k) {
+        this(k, 4096);
+    }
+    
+    public TopKSketch(int k, int anchura) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("K debe ser mayor que 0");
+        }
+        if (anchura <= 0 || Integer.bitCount(anchura) != 1) {
+            throw new IllegalArgumentException("La anchura debe ser una potencia de 2");
+        }
+        this.k = k;
+        this.anchura = anchura;
+        this.contadores = new AtomicLongArray(FILAS * anchura);
+        this.miembros = new ConcurrentHashMap<>(2 * k);
+        this.lista = new Candidato[k];
+        this.minimoDeLaLista = 0;
+        this.tamanoLista = 0;
+    }
+    
+    public void add(String elemento) {
+        if (elemento == null) {
+            throw new IllegalArgumentException("El elemento no puede ser null");
+        }
+        
+        int hash = elemento.hashCode();
+        long estimacion = Long.MAX_VALUE;
+        for (int fila = 0; fila < FILAS; fila++) {
+            int columna = mezclar(hash, fila) & (anchura - 1);
+            estimacion = Math.min(estimacion, contadores.incrementAndGet(fila * anchura + columna));
+        }
+        
+        Candidato candidato = miembros.get(elemento);
+        if (candidato != null) {
+            // Si justo lo han sacado de la lista, se actualiza un objeto que ya nadie mira
+            candidato.subir(estimacion);
+            return;
+        }
+        if (estimacion > minimoDeLaLista) {
+            actualizarLista(elemento, estimacion);
+        }
+    }
+    
+    private synchronized void actualizarLista(String elemento, long estimacion) {
+        Candidato candidato = miembros.get(elemento);
+        if (candidato != null) {
+            // Otro hilo lo metió mientras esperábamos el lock
+            candidato.subir(estimacion);
+            return;
+        }
+        
+        if (tamanoLista < k) {
+            candidato = new Candidato(elemento, estimacion);
+            lista[tamanoLista++] = candidato;
+            miembros.put(elemento, candidato);
+        } else {
+            int posicion = posicionDelMinimo();
+            if (lista[posicion].estimacion.get() < estimacion) {
+                miembros.remove(lista[posicion].elemento);
+                candidato = new Candidato(elemento, estimacion);
+                lista[posicion] = candidato;
+                miembros.put(elemento, candidato);
+            }
+        }
+        // La vía rápida solo sube estimaciones, así que este mínimo puede quedarse bajo,
+        // nunca alto: como mucho alguno más entra aquí y se corrige
+        minimoDeLaLista = tamanoLista < k ? 0 : lista[posicionDelMinimo()].estimacion.get();
+    }
+    
+    private int posicionDelMinimo() {
+        int minimo = 0;
+        for (int i = 1; i < tamanoLista; i++) {
+            if (lista[i].estimacion.get() < lista[minimo].estimacion.get()) {
+                minimo = i;
+            }
+        }
+        return minimo;
+    }
+    
+    // Un hash distinto por fila a partir del mismo hashCode
+    private static int mezclar(int hash, int fila) {
+        int h = hash * (0x9E3779B1 + 2 * fila) + fila;
+        return h ^ (h >>> 16);
+    }
+    
+    /**
+     * Estimación de cuántas veces ha aparecido (nunca por debajo del valor real).
+     */
+    public long estimate(String elemento) {
+        int hash = elemento.hashCode();
+        long estimacion = Long.MAX_VALUE;
+        for (int fila = 0; fila < FILAS; fila++) {
+            int columna = mezclar(hash, fila) & (anchura - 1);
+            estimacion = Math.min(estimacion, contadores.get(fila * anchura + columna));
+        }
+        return estimacion;
+    }
+    
+    /**
+     * Los K más frecuentes, de mayor a menor.
+     */
+    public synchronized List<Entry> top() {
+        List<Entry> resultado = new ArrayList<>(tamanoLista);
+        for (int i = 0; i < tamanoLista; i++) {
+            resultado.add(new Entry(lista[i].elemento, lista[i].estimacion.get()));
+        }
+        resultado.sort(Comparator.comparingLong(Entry::getCount).reversed());
+        return resultado;
+    }
+    
+    // Un puesto de la lista: la estimación solo sube, con CAS
+    private static final class Candidato {
+        final String elemento;
+        final AtomicLong estimacion;
+        
+        Candidato(String elemento, long estimacion) {
+            this.elemento = elemento;
+            this.estimacion = new AtomicLong(estimacion);
+        }
+        
+        void subir(long valor) {
+            long actual = estimacion.get();
+            while (valor > actual && !estimacion.compareAndSet(actual, valor)) {
+                actual = estimacion.get();
+            }
+        }
+    }
+    
+    /**
+     * Un elemento con su frecuencia estimada.
+     */
+    public static class Entry {
+        private final String elemento;
+        private final long cuenta;
+        
+        Entry(String elemento, long cuenta) {
+            this.elemento = elemento;
+            this.cuenta = cuenta;
+        }
+        
+        public String getKey() {
+            return elemento;
+        }
+        
+        public long getCount() {
+            return cuenta;
+        }
+        
+        @Override
+        public String toString() {
+            return elemento + "=" + cuenta;
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package server;
+
+import codec.BookDictionary;
+import codec.LoanCodec;
+import library.Book;
+import library.Loan;
+import notification.LoanEvent;
+import notification.NotificationChannel;
+import policy.StandardLoanPolicy;
+import registry.LogLinearHistogram;
+import service.LoanService;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cliente de carga para LoanServer: mide peticiones por segundo y percentiles de latencia.
+ *
+ * Abre varias conexiones, cada una con su hilo, y en cada una mantiene hasta "ventana"
+ * peticiones enviadas sin respuesta (pipelining): en cuanto llegan respuestas, manda
+ * más. La latencia de cada petición va desde que se escribe en el buffer hasta que se
+ * lee su respuesta, y se guarda en un LogLinearHistogram compartido.
+ *
+ * Uso: java -cp src server.LoanLoadGenerator [host:puerto] [conexiones] [segundos] [ventana]
+ * Sin host:puerto arranca un LoanServer en localhost (política estándar, sin
+ * notificaciones) y lo prueba a él. Por defecto: 4 conexiones, 5 segundos, ventana de 64.
+ */
+public class LoanLoadGenerator {
+
+    private static final int TAMANO_BUFFER = 64 * 1024;
+    // Con más en vuelo, las respuestas pendientes podrían no caber en los buffers del servidor
+    private static final int MAX_VENTANA = 4096;
+
+    private final InetSocketAddress direccion;
+    private final int conexiones;
+    private final int ventana;
+    private final BookDictionary diccionario;
+
+    public LoanLoadGenerator(InetSocketAddress direccion, int conexiones, int ventana) {
+        this(direccion, conexiones, ventana, null);
+    }
+
+    /**
+     * El diccionario debe ser el mismo que tiene el servidor (o null en los dos).
+     */
+    public LoanLoadGenerator(InetSocketAddress direccion, int conexiones, int ventana,
+                             BookDictionary diccionario) {
+        if (direccion == null) {
+            throw new IllegalArgumentException("La dirección no puede ser null");
+        }
+        if (conexiones <= 0) {
+            throw new IllegalArgumentException("El número de conexiones debe ser mayor que 0");
+        }
+        if (ventana <= 0 || ventana > MAX_VENTANA) {
+            throw new IllegalArgumentException("La ventana debe estar entre 1 y " + MAX_VENTANA);
+        }
+        this.direccion = direccion;
+        this.conexiones = conexiones;
+        this.ventana = ventana;
+        this.diccionario = diccionario;
+    }
+
+    /**
+     * Envía los préstamos (en bucle) durante el tiempo indicado y espera las respuestas pendientes.
+     */
+    public Result run(Loan[] prestamos, long duracionMillis) throws InterruptedException {
+        if (prestamos == null || prestamos.length == 0) {
+            throw new IllegalArgumentException("Hace falta al menos un préstamo");
+        }
+        if (duracionMillis <= 0) {
+            throw new IllegalArgumentException("La duración debe ser mayor que 0");
+        }
+
+        LogLinearHistogram latencias = new LogLinearHistogram();
+        AtomicLong respuestasConError = new AtomicLong();
+        List<Thread> hilos = new ArrayList<>(conexiones);
+        List<Throwable> fallos = new ArrayList<>();
+        long inicio = System.nanoTime();
+        long fin = inicio + duracionMillis * 1_000_000L;
+
+        for (int c = 0; c < conexiones; c++) {
+            final int desplazamiento = c * 7919;
+            Thread hilo = new Thread(() -> {
+                try {
+                    cargar(prestamos, desplazamiento, fin, latencias, respuestasConError);
+                } catch (IOException | RuntimeException e) {
+                    synchronized (fallos) {
+                        fallos.add(e);
+                    }
+                }
+            }, "carga-" + c);
+            hilos.add(hilo);
+            hilo.start();
+        }
+        for (Thread hilo : hilos) {
+            hilo.join();
+        }
+        long transcurrido = System.nanoTime() - inicio;
+
+        if (!fallos.isEmpty()) {
+            Throwable primero = fallos.get(0);
+            throw new IllegalStateException("Falló una conexión de carga: " + primero.getMessage(), primero);
+        }
+        return new Result(latencias, respuestasConError.get(), transcurrido);
+    }
+
+    // Una conexión: mantiene la ventana llena hasta el final y después recoge lo que falte
+    private void cargar(Loan[] prestamos, int desplazamiento, long fin, LogLinearHistogram latencias,
+                        AtomicLong respuestasConError) throws IOException {
+        LoanCodec codec = new LoanCodec(diccionario);
+        ByteBuffer salida = ByteBuffer.allocateDirect(TAMANO_BUFFER);
+        ByteBuffer entrada = ByteBuffer.allocateDirect(TAMANO_BUFFER);
+        // Instante de envío de cada petición en vuelo, por número de petición módulo ventana
+        long[] enviadaEn = new long[ventana];
+        long enviadas = 0;
+        long recibidas = 0;
+
+        try (SocketChannel canal = SocketChannel.open(direccion)) {
+            canal.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            while (true) {
+                boolean enTiempo = System.nanoTime() < fin;
+                if (!enTiempo && recibidas == enviadas) {
+                    return;
+                }
+                if (enTiempo) {
+                    while (enviadas - recibidas < ventana) {
+                        Loan loan = prestamos[(int) ((enviadas + desplazamiento) % prestamos.length)];
+                        if (!LoanProtocol.writeRequest(codec, loan, salida)) {
+                            break;
+                        }
+                        enviadaEn[(int) (enviadas % ventana)] = System.nanoTime();
+                        enviadas++;
+                    }
+                    salida.flip();
+                    while (salida.hasRemaining()) {
+                        canal.write(salida);
+                    }
+                    salida.clear();
+                }
+
+                if (canal.read(entrada) < 0) {
+                    throw new IOException("El servidor ha cerrado la conexión");
+                }
+                entrada.flip();
+                long ahora = System.nanoTime();
+                while (entrada.remaining() >= LoanProtocol.TAMANO_RESPUESTA) {
+                    byte estado = entrada.get();
+                    entrada.getLong();
+                    if (estado != LoanProtocol.OK) {
+                        respuestasConError.incrementAndGet();
+                    }
+                    latencias.record(ahora - enviadaEn[(int) (recibidas % ventana)]);
+                    recibidas++;
+                }
+                entrada.compact();
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoanServer servidor = null;
+        InetSocketAddress direccion;
+        int siguiente = 0;
+        if (args.length > 0 && args[0].contains(":")) {
+            int dosPuntos = args[0].lastIndexOf(':');
+            direccion = new InetSocketAddress(args[0].substring(0, dosPuntos),
+                                              Integer.parseInt(args[0].substring(dosPuntos + 1)));
+            siguiente = 1;
+        } else {
+            LoanService service = new LoanService(new StandardLoanPolicy(), new CanalDescarte());
+            servidor = new LoanServer(service, 0);
+            direccion = servidor.getAddress();
+        }
+        int conexiones = args.length > siguiente ? Integer.parseInt(args[siguiente]) : 4;
+        int segundos = args.length > siguiente + 1 ? Integer.parseInt(args[siguiente + 1]) : 5;
+        int ventana = args.length > siguiente + 2 ? Integer.parseInt(args[siguiente + 2]) : 64;
+
+        Loan[] prestamos = new Loan[1024];
+        for (int i = 0; i < prestamos.length; i++) {
+            Book libro = new Book("Libro " + (i % 100), "Autor " + (i % 37), "978-" + (i % 100));
+            prestamos[i] = new Loan(libro, "Prestatario " + (i % 250), 1 + (i * 7) % 60);
+        }
+
+        System.out.printf("Carga contra %s: %d conexiones, ventana de %d, %d s%n",
+                          direccion, conexiones, ventana, segundos);
+        try {
+            Result resultado = new LoanLoadGenerator(direccion, conexiones, ventana)
+                    .run(prestamos, segundos * 1000L);
+            System.out.println(resultado.report());
+        } finally {
+            if (servidor != null) {
+                System.out.println(servidor);
+                servidor.close();
+            }
+        }
+    }
+
+    /**
+     * Resultado de una carga. Las latencias están en nanosegundos.
+     */
+    public static class Result {
+
+        private final LogLinearHistogram latencias;
+        private final long errores;
+        private final long nanos;
+
+        Result(LogLinearHistogram latencias, long errores, long nanos) {
+            this.latencias = latencias;
+            this.errores = errores;
+            this.nanos = nanos;
+        }
+
+        public long getRequests() {
+            return latencias.getCount();
+        }
+
+        public long getErrorCount() {
+            return errores;
+        }
+
+        public double getRequestsPerSecond() {
+            return latencias.getCount() * 1e9 / nanos;
+        }
+
+        public long getLatencyPercentile(double percentil) {
+            return latencias.getPercentile(percentil);
+        }
+
+        public long getMaxLatency() {
+            return latencias.getMax();
+        }
+
+        public String report() {
+            return String.format("Peticiones: %d (%d con error) en %.1f s -> %.0f pet/s%n"
+                    + "Latencia (µs): media=%.1f p50=%.1f p90=%.1f p99=%.1f p99.9=%.1f máx=%.1f",
+                    getRequests(), errores, nanos / 1e9, getRequestsPerSecond(),
+                    latencias.getMean() / 1000.0, micros(50), micros(90), micros(99), micros(99.9),
+                    latencias.getMax() / 1000.0);
+        }
+
+        private double micros(double percentil) {
+            return latencias.getPercentile(percentil) / 1000.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("LoanLoadGenerator.Result[peticiones=%d, %.0f pet/s, p99=%d ns]",
+                               getRequests(), getRequestsPerSecond(), getLatencyPercentile(99));
+        }
+    }
+
+    // El servidor de prueba no notifica a nadie: se mide el servidor, no la consola
+    private static class CanalDescarte implements NotificationChannel {
+
+        @Override
+        public void notify(String message) {
+        }
+
+        @Override
+        public void notify(LoanEvent event) {
+        }
+
+        @Override
+        public String getChannelName() {
+            return "Descarte";
+        }
+    }
+}
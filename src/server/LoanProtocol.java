@@ -0,0 +1,59 @@
+package server;
+
+import codec.LoanCodec;
+import codec.Varint;
+import library.Loan;
+import java.nio.ByteBuffer;
+
+/**
+ * Formato de los mensajes entre LoanServer y sus clientes.
+ *
+ * Petición: [longitud varint][préstamo en formato LoanCodec]. La longitud permite
+ * saltarse un préstamo que no se puede leer sin perder el resto de la conexión.
+ * Respuesta: [estado, 1 byte][coste en milésimas, 8 bytes], siempre 9 bytes.
+ *
+ * Las respuestas salen en el mismo orden que las peticiones, así que no llevan número:
+ * el cliente puede mandar muchas seguidas sin esperar (pipelining) y emparejarlas por orden.
+ */
+final class LoanProtocol {
+
+    static final byte OK = 0;
+    /** El préstamo no se pudo leer o no es válido (días, libro vacío...). */
+    static final byte INVALIDO = 1;
+    /** El servicio falló al procesarlo. */
+    static final byte ERROR = 2;
+
+    static final int TAMANO_RESPUESTA = 9;
+    static final int MAX_PETICION = 256 * 1024;
+
+    private LoanProtocol() {
+    }
+
+    /**
+     * Escribe la petición si cabe entera; si no, no escribe nada y devuelve false.
+     */
+    static boolean writeRequest(LoanCodec codec, Loan loan, ByteBuffer destino) {
+        int longitud = codec.encodedSize(loan);
+        if (destino.remaining() < Varint.size(longitud) + longitud) {
+            return false;
+        }
+        Varint.write(destino, longitud);
+        codec.encode(loan, destino);
+        return true;
+    }
+
+    /**
+     * Lee la longitud de la siguiente petición. Si aún no ha llegado entera devuelve -1
+     * y deja la posición donde estaba.
+     */
+    static int readLength(ByteBuffer origen) {
+        if (!Varint.canRead(origen)) {
+            return -1;
+        }
+        int valor = Varint.read(origen);
+        if (valor > MAX_PETICION) {
+            throw new IllegalArgumentException("Petición de " + valor + " bytes, el máximo es " + MAX_PETICION);
+        }
+        return valor;
+    }
+}
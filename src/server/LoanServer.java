@@ -0,0 +1,364 @@
+package server;
+
+import codec.BookDictionary;
+import codec.LoanCodec;
+import isp.FullLoanService;
+import library.Loan;
+import library.Money;
+import service.LoanService;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
+
+/**
+ * Servidor TCP que procesa préstamos con un LoanService (o un FullLoanService).
+ *
+ * Usa NIO con un solo hilo y un Selector para todas las conexiones. Cada conexión
+ * tiene su buffer de entrada y de salida: por cada lectura se procesan todas las
+ * peticiones completas que hayan llegado y sus respuestas se escriben juntas con una
+ * sola llamada a write. Así un cliente que manda muchas peticiones seguidas sin esperar
+ * (pipelining) recibe las respuestas por lotes. El formato está en LoanProtocol.
+ *
+ * Si el cliente no lee y el buffer de salida se llena, se deja de leer esa conexión
+ * hasta que haya sitio. Una petición que no se puede leer recibe INVALIDO y la
+ * conexión sigue; una longitud imposible la cierra, porque ya no se sabe dónde empieza
+ * la siguiente.
+ *
+ * El servicio se llama siempre desde el hilo del servidor, así que su canal no
+ * necesita ser thread-safe (salvo que se use también desde fuera).
+ * LoanLoadGenerator sirve de cliente y de prueba de carga.
+ */
+public class LoanServer implements AutoCloseable {
+
+    private static final int TAMANO_BUFFER = 64 * 1024;
+
+    private final ToLongFunction<Loan> procesador;
+    private final BookDictionary diccionario;
+    private final Selector selector;
+    private final ServerSocketChannel servidor;
+    private final Thread hilo;
+
+    private final AtomicLong conexiones;
+    private final AtomicLong peticiones;
+    private final AtomicLong invalidas;
+    private final AtomicLong errores;
+    private volatile boolean cerrado;
+
+    public LoanServer(LoanService service, int puerto) throws IOException {
+        this(service, new InetSocketAddress(InetAddress.getLoopbackAddress(), puerto), null);
+    }
+
+    public LoanServer(FullLoanService service, int puerto) throws IOException {
+        this(service, new InetSocketAddress(InetAddress.getLoopbackAddress(), puerto), null);
+    }
+
+    /**
+     * El diccionario, si no es null, debe ser el mismo que usan los clientes en su LoanCodec.
+     * Con puerto 0 se elige uno libre (ver getPort()).
+     */
+    public LoanServer(LoanService service, InetSocketAddress direccion, BookDictionary diccionario)
+            throws IOException {
+        this(procesadorDe(service), direccion, diccionario);
+    }
+
+    public LoanServer(FullLoanService service, InetSocketAddress direccion, BookDictionary diccionario)
+            throws IOException {
+        this(procesadorDe(service), direccion, diccionario);
+    }
+
+    private LoanServer(ToLongFunction<Loan> procesador, InetSocketAddress direccion,
+                       BookDictionary diccionario) throws IOException {
+        if (direccion == null) {
+            throw new IllegalArgumentException("La dirección no puede ser null");
+        }
+        this.procesador = procesador;
+        this.diccionario = diccionario;
+        this.conexiones = new AtomicLong();
+        this.peticiones = new AtomicLong();
+        this.invalidas = new AtomicLong();
+        this.errores = new AtomicLong();
+        this.cerrado = false;
+
+        this.selector = Selector.open();
+        this.servidor = ServerSocketChannel.open();
+        try {
+            servidor.bind(direccion);
+            servidor.configureBlocking(false);
+            servidor.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            servidor.close();
+            selector.close();
+            throw e;
+        }
+
+        this.hilo = new Thread(this::bucle, "servidor-prestamos-" + getPort());
+        this.hilo.setDaemon(true);
+        this.hilo.start();
+    }
+
+    private static ToLongFunction<Loan> procesadorDe(LoanService service) {
+        if (service == null) {
+            throw new IllegalArgumentException("El servicio no puede ser null");
+        }
+        return service::processLoanMillis;
+    }
+
+    private static ToLongFunction<Loan> procesadorDe(FullLoanService service) {
+        if (service == null) {
+            throw new IllegalArgumentException("El servicio no puede ser null");
+        }
+        return loan -> Money.fromEuros(service.processLoanFully(loan));
+    }
+
+    // Bucle del hilo del servidor
+    private void bucle() {
+        try {
+            while (!cerrado) {
+                selector.select();
+                Iterator<SelectionKey> claves = selector.selectedKeys().iterator();
+                while (claves.hasNext()) {
+                    SelectionKey clave = claves.next();
+                    claves.remove();
+                    if (!clave.isValid()) {
+                        continue;
+                    }
+                    if (clave.isAcceptable()) {
+                        try {
+                            aceptar();
+                        } catch (IOException e) {
+                            // Falla esa conexión, no el servidor
+                        }
+                        continue;
+                    }
+                    Conexion conexion = (Conexion) clave.attachment();
+                    try {
+                        if (clave.isReadable()) {
+                            leer(conexion);
+                        }
+                        if (clave.isValid() && clave.isWritable()) {
+                            reanudar(conexion);
+                        }
+                    } catch (IOException | IllegalArgumentException e) {
+                        // El cliente se ha ido o manda algo que no se puede seguir leyendo
+                        cerrar(conexion);
+                    }
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            // Se está cerrando el servidor
+        } finally {
+            for (SelectionKey clave : selector.keys()) {
+                if (clave.attachment() instanceof Conexion) {
+                    cerrar((Conexion) clave.attachment());
+                }
+            }
+        }
+    }
+
+    private void aceptar() throws IOException {
+        SocketChannel canal = servidor.accept();
+        if (canal == null) {
+            return;
+        }
+        canal.configureBlocking(false);
+        canal.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        Conexion conexion = new Conexion(canal, new LoanCodec(diccionario));
+        conexion.clave = canal.register(selector, SelectionKey.OP_READ, conexion);
+        conexiones.incrementAndGet();
+    }
+
+    private void leer(Conexion conexion) throws IOException {
+        if (conexion.canal.read(conexion.entrada) < 0) {
+            cerrar(conexion);
+            return;
+        }
+        atender(conexion);
+    }
+
+    // La conexión estaba parada esperando a que el cliente leyera
+    private void reanudar(Conexion conexion) throws IOException {
+        escribir(conexion);
+        if (conexion.salida.position() == 0) {
+            atender(conexion);
+        }
+    }
+
+    // Procesa y responde hasta que no quedan peticiones completas o el cliente no lee
+    private void atender(Conexion conexion) throws IOException {
+        ByteBuffer entrada = conexion.entrada;
+        while (true) {
+            boolean salidaLlena;
+            entrada.flip();
+            try {
+                salidaLlena = procesar(conexion);
+            } finally {
+                entrada.compact();
+            }
+            escribir(conexion);
+            if (!salidaLlena || conexion.salida.position() > 0) {
+                return;
+            }
+        }
+    }
+
+    // Atiende las peticiones completas mientras quepan sus respuestas; true si paró por la salida
+    private boolean procesar(Conexion conexion) {
+        ByteBuffer entrada = conexion.entrada;
+        ByteBuffer salida = conexion.salida;
+        while (true) {
+            if (salida.remaining() < LoanProtocol.TAMANO_RESPUESTA) {
+                return true;
+            }
+            int inicio = entrada.position();
+            int longitud = LoanProtocol.readLength(entrada);
+            if (longitud < 0) {
+                return false;
+            }
+            if (entrada.remaining() < longitud) {
+                if (longitud > entrada.capacity()) {
+                    // No cabría nunca en el buffer de entrada
+                    throw new IllegalArgumentException("Petición de " + longitud + " bytes");
+                }
+                entrada.position(inicio);
+                return false;
+            }
+
+            int fin = entrada.position() + longitud;
+            int limite = entrada.limit();
+            entrada.limit(fin);
+            try {
+                Loan loan = conexion.codec.decode(entrada);
+                if (entrada.position() != fin) {
+                    throw new IllegalArgumentException("Sobran bytes en la petición");
+                }
+                long coste;
+                try {
+                    coste = procesador.applyAsLong(loan);
+                } catch (RuntimeException e) {
+                    errores.incrementAndGet();
+                    salida.put(LoanProtocol.ERROR).putLong(0);
+                    continue;
+                }
+                salida.put(LoanProtocol.OK).putLong(coste);
+            } catch (RuntimeException e) {
+                // Préstamo que no se puede leer: se responde y se salta
+                invalidas.incrementAndGet();
+                salida.put(LoanProtocol.INVALIDO).putLong(0);
+            } finally {
+                entrada.limit(limite);
+                entrada.position(fin);
+                peticiones.incrementAndGet();
+            }
+        }
+    }
+
+    // Escribe lo que se pueda; si queda algo, se espera a OP_WRITE en vez de seguir leyendo
+    private void escribir(Conexion conexion) throws IOException {
+        ByteBuffer salida = conexion.salida;
+        if (salida.position() == 0) {
+            return;
+        }
+        salida.flip();
+        conexion.canal.write(salida);
+        salida.compact();
+        conexion.clave.interestOps(salida.position() == 0 ? SelectionKey.OP_READ : SelectionKey.OP_WRITE);
+    }
+
+    private void cerrar(Conexion conexion) {
+        if (!conexion.canal.isOpen()) {
+            return;
+        }
+        conexiones.decrementAndGet();
+        conexion.clave.cancel();
+        try {
+            conexion.canal.close();
+        } catch (IOException e) {
+            // Ya no se puede hacer nada con ella
+        }
+    }
+
+    public int getPort() {
+        return servidor.socket().getLocalPort();
+    }
+
+    public InetSocketAddress getAddress() {
+        return new InetSocketAddress(servidor.socket().getInetAddress(), getPort());
+    }
+
+    public long getOpenConnections() {
+        return conexiones.get();
+    }
+
+    public long getRequestCount() {
+        return peticiones.get();
+    }
+
+    public long getInvalidCount() {
+        return invalidas.get();
+    }
+
+    public long getErrorCount() {
+        return errores.get();
+    }
+
+    /**
+     * Deja de aceptar conexiones, cierra las abiertas y espera a que pare el hilo.
+     */
+    @Override
+    public void close() throws IOException {
+        if (cerrado) {
+            return;
+        }
+        cerrado = true;
+        selector.wakeup();
+        boolean interrumpido = false;
+        while (hilo.isAlive()) {
+            try {
+                hilo.join();
+            } catch (InterruptedException e) {
+                interrumpido = true;
+            }
+        }
+        try {
+            servidor.close();
+        } finally {
+            selector.close();
+        }
+        if (interrumpido) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("LoanServer[puerto=%d, conexiones=%d, peticiones=%d, inválidas=%d, errores=%d]",
+                           getPort(), conexiones.get(), peticiones.get(), invalidas.get(), errores.get());
+    }
+
+    /**
+     * Estado de una conexión; solo lo toca el hilo del servidor.
+     */
+    private static class Conexion {
+        final SocketChannel canal;
+        final LoanCodec codec;
+        // Los dos se dejan siempre listos para escribir en ellos (entre flip y compact)
+        final ByteBuffer entrada = ByteBuffer.allocate(TAMANO_BUFFER);
+        final ByteBuffer salida = ByteBuffer.allocate(TAMANO_BUFFER);
+        SelectionKey clave;
+
+        Conexion(SocketChannel canal, LoanCodec codec) {
+            this.canal = canal;
+            this.codec = codec;
+        }
+    }
+}
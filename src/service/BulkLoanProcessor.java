@@ -0,0 +1,205 @@
+package service;
+
+import isp.LoanRegistry;
+import library.Loan;
+import library.Money;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Procesa lotes grandes de préstamos en paralelo usando un LoanService.
+ *
+ * Los préstamos se reparten en particiones según el prestatario (hash del nombre),
+ * así todos los préstamos de una misma persona los procesa el mismo hilo y en el
+ * orden en que llegaron: sus notificaciones salen en orden. Cada partición suma sus
+ * propios ingresos (en milésimas de euro, así el total es exacto) y al final se juntan.
+ *
+ * El registro (opcional) se hace al terminar, en el orden original del lote, así no
+ * hace falta que el LoanRegistry sea thread-safe. El canal del LoanService sí debe
+ * serlo, porque varios hilos notifican a la vez.
+ *
+ * Las particiones se ejecutan en un ForkJoinPool propio con tantos hilos como el
+ * paralelismo indicado. Hilos virtuales no hay: el proyecto compila para Java 11 y el
+ * trabajo de cada partición es de CPU, así que no ganaría nada con ellos.
+ */
+public class BulkLoanProcessor implements AutoCloseable {
+
+    private final LoanService service;
+    private final int paralelismo;
+    private final ForkJoinPool executor;
+
+    public BulkLoanProcessor(LoanService service) {
+        this(service, Runtime.getRuntime().availableProcessors());
+    }
+
+    public BulkLoanProcessor(LoanService service, int paralelismo) {
+        if (service == null) {
+            throw new IllegalArgumentException("El servicio no puede ser null");
+        }
+        if (paralelismo <= 0) {
+            throw new IllegalArgumentException("El paralelismo debe ser mayor que 0");
+        }
+
+        this.service = service;
+        this.paralelismo = paralelismo;
+        this.executor = new ForkJoinPool(paralelismo);
+    }
+
+    /**
+     * Procesa el lote y, si se pasa un registro, registra cada préstamo con su coste.
+     */
+    public Result process(List<Loan> loans, LoanRegistry registro) {
+        if (loans == null) {
+            throw new IllegalArgumentException("La lista de préstamos no puede ser null");
+        }
+
+        int total = loans.size();
+        int[][] particiones = particionarPorPrestatario(loans);
+        long[] costes = new long[total];
+        long[] ingresosParciales = new long[particiones.length];
+
+        List<Callable<Void>> tareas = new ArrayList<>(particiones.length);
+        for (int p = 0; p < particiones.length; p++) {
+            final int particion = p;
+            tareas.add(() -> {
+                long ingresos = 0;
+                for (int indice : particiones[particion]) {
+                    long coste = service.processLoanMillis(loans.get(indice));
+                    costes[indice] = coste;
+                    ingresos = Money.add(ingresos, coste);
+                }
+                ingresosParciales[particion] = ingresos;
+                return null;
+            });
+        }
+        ejecutar(tareas);
+
+        long ingresosTotales = 0;
+        for (long parcial : ingresosParciales) {
+            ingresosTotales = Money.add(ingresosTotales, parcial);
+        }
+
+        if (registro != null) {
+            for (int i = 0; i < total; i++) {
+                registro.registerLoanWithCostMillis(loans.get(i), costes[i]);
+            }
+        }
+
+        return new Result(costes, ingresosTotales);
+    }
+
+    public Result process(List<Loan> loans) {
+        return process(loans, null);
+    }
+
+    /**
+     * Igual que con una lista; el stream se recoge entero antes de repartirlo.
+     */
+    public Result process(Stream<Loan> loans, LoanRegistry registro) {
+        if (loans == null) {
+            throw new IllegalArgumentException("El stream de préstamos no puede ser null");
+        }
+        return process(loans.collect(Collectors.toList()), registro);
+    }
+
+    // Índices de cada partición, en el orden original (dos pasadas, sin objetos por préstamo)
+    private int[][] particionarPorPrestatario(List<Loan> loans) {
+        int total = loans.size();
+        int numParticiones = Math.max(1, Math.min(paralelismo, total));
+        int[] particionDe = new int[total];
+        int[] tamanos = new int[numParticiones];
+
+        for (int i = 0; i < total; i++) {
+            Loan loan = loans.get(i);
+            if (loan == null) {
+                throw new IllegalArgumentException("El préstamo en la posición " + i + " es null");
+            }
+            int particion = Math.floorMod(loan.getBorrowerName().hashCode(), numParticiones);
+            particionDe[i] = particion;
+            tamanos[particion]++;
+        }
+
+        int[][] particiones = new int[numParticiones][];
+        for (int p = 0; p < numParticiones; p++) {
+            particiones[p] = new int[tamanos[p]];
+            tamanos[p] = 0;
+        }
+        for (int i = 0; i < total; i++) {
+            int p = particionDe[i];
+            particiones[p][tamanos[p]++] = i;
+        }
+        return particiones;
+    }
+
+    private void ejecutar(List<Callable<Void>> tareas) {
+        try {
+            for (Future<Void> resultado : executor.invokeAll(tareas)) {
+                resultado.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Procesamiento del lote interrumpido", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Error procesando el lote", e.getCause());
+        }
+    }
+
+    public int getParallelism() {
+        return paralelismo;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    /**
+     * Resultado de un lote: el coste de cada préstamo (mismo orden que la entrada)
+     * y los totales ya juntados.
+     */
+    public static class Result {
+
+        private final long[] costes;
+        private final long ingresos;
+
+        Result(long[] costes, long ingresos) {
+            this.costes = costes;
+            this.ingresos = ingresos;
+        }
+
+        public double getCost(int posicion) {
+            return Money.toEuros(costes[posicion]);
+        }
+
+        public long getCostMillis(int posicion) {
+            return costes[posicion];
+        }
+
+        public int getTotalLoansProcessed() {
+            return costes.length;
+        }
+
+        public double getTotalRevenue() {
+            return Money.toEuros(ingresos);
+        }
+
+        public long getTotalRevenueMillis() {
+            return ingresos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("BulkLoanProcessor.Result[préstamos=%d, ingresos=%.2f€]",
+                               costes.length, getTotalRevenue());
+        }
+    }
+}
@@ -1,6 +1,10 @@
 package service;
 
 import library.Loan;
+import library.Money;
+import metrics.LoanMetrics;
+import metrics.Stage;
+import notification.LoanEvent;
 import notification.NotificationChannel;
 import policy.LoanPolicy;
 
@@ -18,47 +22,80 @@ public class LoanService {
     // Dependencias - son interfaces, no clases concretas
     private final LoanPolicy policy;
     private final NotificationChannel notificationChannel;
+    private final LoanMetrics metrics;
+    private final String nombreCanal;
     
     /**
      * Constructor con inyección de dependencias.
      * Las dependencias vienen de fuera, no se crean aquí.
      */
     public LoanService(LoanPolicy policy, NotificationChannel notificationChannel) {
+        this(policy, notificationChannel, LoanMetrics.NOOP);
+    }
+    
+    /**
+     * Igual, midiendo cada fase en las métricas indicadas.
+     */
+    public LoanService(LoanPolicy policy, NotificationChannel notificationChannel, LoanMetrics metrics) {
         if (policy == null) {
             throw new IllegalArgumentException("La política no puede ser null");
         }
         if (notificationChannel == null) {
             throw new IllegalArgumentException("El canal de notificación no puede ser null");
         }
+        if (metrics == null) {
+            throw new IllegalArgumentException("Las métricas no pueden ser null");
+        }
         
         this.policy = policy;
         this.notificationChannel = notificationChannel;
+        this.metrics = metrics;
+        this.nombreCanal = notificationChannel.getChannelName();
+        metrics.registerChannelGauges(notificationChannel);
     }
     
     /**
      * Procesa un préstamo: calcula el coste y envía notificación.
      */
     public double processLoan(Loan loan) {
+        return Money.toEuros(processLoanMillis(loan));
+    }
+    
+    /**
+     * Igual que processLoan, pero devuelve el coste exacto en milésimas de euro.
+     */
+    public long processLoanMillis(Loan loan) {
         if (loan == null) {
             throw new IllegalArgumentException("El préstamo no puede ser null");
         }
         
-        // Delega el cálculo a la política (polimorfismo)
-        double cost = policy.calculateCost(loan);
+        long inicio = metrics.startTimer();
         
-        // Monta el mensaje y lo envía
-        String message = String.format(
-            "Préstamo procesado - Libro: '%s' | Prestatario: %s | Días: %d | Coste: %.2f€ | Política: %s",
-            loan.getBook().getTitle(),
-            loan.getBorrowerName(),
-            loan.getDaysLoaned(),
-            cost,
-            policy.getPolicyName()
-        );
+        // Delega el cálculo a la política (polimorfismo); si enruta, se resuelve una vez
+        LoanPolicy aplicada;
+        long costMillis;
+        try {
+            aplicada = policy.resolve(loan);
+            costMillis = aplicada.calculateCostMillis(loan);
+        } catch (RuntimeException e) {
+            metrics.recordError(Stage.PRICING);
+            throw e;
+        }
+        long trasCalcular = metrics.recordStage(Stage.PRICING, inicio);
         
-        notificationChannel.notify(message);
+        // El texto lo monta el canal solo si lo necesita
+        try {
+            notificationChannel.notify(LoanEvent.processed(loan, costMillis, aplicada.getPolicyName()));
+        } catch (RuntimeException e) {
+            metrics.recordError(Stage.NOTIFICATION);
+            throw e;
+        }
+        long fin = metrics.recordStage(Stage.NOTIFICATION, trasCalcular);
         
-        return cost;
+        metrics.recordNanos(Stage.TOTAL, fin - inicio);
+        metrics.countPolicy(aplicada.getPolicyName());
+        metrics.countChannel(nombreCanal);
+        return costMillis;
     }
     
     public String getPolicyInfo() {
@@ -68,4 +105,8 @@ public class LoanService {
     public String getNotificationChannelInfo() {
         return notificationChannel.toString();
     }
+    
+    public LoanMetrics getMetrics() {
+        return metrics;
+    }
 }